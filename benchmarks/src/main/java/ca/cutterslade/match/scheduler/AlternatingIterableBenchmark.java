@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Iterates an {@link AlternatingIterable} over several lists of equal length.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlternatingIterableBenchmark {
+
+  @Param({ "2", "8" })
+  public int iterables;
+
+  @Param({ "1000", "100000" })
+  public int length;
+
+  private AlternatingIterable<Integer> iterable;
+
+  @Setup
+  public void setUp() {
+    List<List<Integer>> lists = Lists.newArrayList();
+    for (int i = 0; i < iterables; i++) {
+      List<Integer> list = Lists.newArrayListWithCapacity(length);
+      for (int j = 0; j < length; j++)
+        list.add(j);
+      lists.add(list);
+    }
+    iterable = new AlternatingIterable<Integer>(lists);
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (Integer i : iterable)
+      sum += i.intValue();
+    return sum;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Schedules a whole league on the calling thread with and without
+ * {@link Configuration.Builder#anchoredSearch(boolean) anchored search}.
+ * Anchored search narrows the candidates more as tiers grow, so compare them
+ * on larger leagues too, for example <code>-p teams=48,80 -p size=4</code>.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnchoredSearchBenchmark {
+
+  private static final Executor EXECUTOR = new Executor(true);
+
+  @Param({ "false", "true" })
+  public boolean anchored;
+
+  private Configuration config;
+
+  @Setup
+  public void setUp() {
+    config = Configuration.builder().anchoredSearch(anchored).build();
+  }
+
+  @Benchmark
+  public ImmutableSet<Match> getMatches(LeagueState league) throws InterruptedException {
+    return new MatchMaker(config, league.league, league.size, EXECUTOR, true).getMatches();
+  }
+}
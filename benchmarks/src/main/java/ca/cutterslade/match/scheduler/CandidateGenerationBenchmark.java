@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates the candidate matches of a league, which replaced the recursive
+ * <code>PossibleMatchesCallable</code>.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CandidateGenerationBenchmark {
+
+  @Benchmark
+  public long combinations(LeagueState league) {
+    long sum = 0;
+    for (int t = 0; t < league.league.getTierCount(); t++)
+      for (int[] m : new Combinations(league.league.getTierTeams(t), league.size))
+        sum += m[0];
+    return sum;
+  }
+
+  @Benchmark
+  public CandidatePool pool(LeagueState league) {
+    return CandidatePool.forLeague(league.league, league.size, false);
+  }
+
+  @Benchmark
+  public CandidatePool indexedPool(LeagueState league) {
+    return CandidatePool.forLeague(league.league, league.size, true);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Builds the candidate matches of a league in each of the forms compared by
+ * {@link CandidatePoolMemoryBenchmark}. Run it with the allocation profiler,
+ * <code>-prof gc</code>, to see the bytes each build allocates, including
+ * the garbage it leaves.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CandidatePoolAllocationBenchmark {
+
+  @Benchmark
+  public ImmutableSet<ImmutableSet<Team>> teamSets(LeagueState league) {
+    return CandidatePoolMemoryBenchmark.teamSets(league);
+  }
+
+  @Benchmark
+  public List<Object> arrays(LeagueState league) {
+    return CandidatePoolMemoryBenchmark.arrays(league);
+  }
+
+  @Benchmark
+  public CandidatePool pool(LeagueState league) {
+    return CandidatePoolMemoryBenchmark.pool(league);
+  }
+}
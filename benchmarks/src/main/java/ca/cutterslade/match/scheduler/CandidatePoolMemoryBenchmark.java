@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the heap retained by the candidate matches of a league when held
+ * as a set of sets of teams, as arrays of team ids and masks, and as a
+ * {@link CandidatePool}. Each form is built once per trial, between forced
+ * collections of a fixed heap, and the growth in the heap used is reported
+ * as the <code>bytes</code> counter; the time of the benchmark itself, which
+ * only returns the form, is of no interest. The bytes each form allocates while
+ * it is built, garbage included, are measured by
+ * {@link CandidatePoolAllocationBenchmark}.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class CandidatePoolMemoryBenchmark {
+
+  @Param({ "teamSets", "arrays", "pool" })
+  public String form;
+
+  private Object candidates;
+
+  private long retained;
+
+  /**
+   * The heap retained by the form, reported with each iteration; JMH resets
+   * it before each, so the benchmark sets it.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Retained {
+
+    public long bytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp(LeagueState league) {
+    long before = used();
+    if ("teamSets".equals(form)) candidates = teamSets(league);
+    else if ("arrays".equals(form)) candidates = arrays(league);
+    else if ("pool".equals(form)) candidates = pool(league);
+    else throw new IllegalArgumentException("unknown form: " + form);
+    retained = used() - before;
+  }
+
+  @Benchmark
+  public Object retained(Retained counter) {
+    counter.bytes = retained;
+    return candidates;
+  }
+
+  static ImmutableSet<ImmutableSet<Team>> teamSets(LeagueState league) {
+    ImmutableSet.Builder<ImmutableSet<Team>> b = ImmutableSet.builder();
+    for (int[] m : candidates(league))
+      b.add(league.league.getTeams(m));
+    return b.build();
+  }
+
+  static List<Object> arrays(LeagueState league) {
+    List<Object> arrays = Lists.newArrayList();
+    int words = TeamBits.words(league.league.getTeamCount());
+    for (int[] m : candidates(league)) {
+      long[] mask = new long[words];
+      for (int t : m)
+        mask[t >>> 6] |= 1L << t;
+      arrays.add(m);
+      arrays.add(mask);
+    }
+    return arrays;
+  }
+
+  static CandidatePool pool(LeagueState league) {
+    return CandidatePool.forLeague(league.league, league.size, false);
+  }
+
+  private static Iterable<int[]> candidates(LeagueState league) {
+    List<Combinations> tiers = Lists.newArrayList();
+    for (int i = 0; i < league.league.getTierCount(); i++)
+      tiers.add(new Combinations(league.league.getTierTeams(i), league.size));
+    return new AlternatingIterable<int[]>(tiers);
+  }
+
+  /**
+   * @return the heap used once repeated collections have freed what they can
+   */
+  private static long used() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Schedules a whole league with each {@link ExecutionStrategy}, scoring the
+ * candidates for each slot either in parallel or one at a time with their
+ * factors in parallel. Each invocation creates and shuts down the executor of
+ * its schedule, as the {@link Scheduler} does, so the cost of creating
+ * threads is included. Which strategy is fastest depends on the number of
+ * processors as well as the size of the league, so compare them with
+ * <code>-p teams=24,48</code> on the hardware the scheduler will use. The
+ * virtual thread strategy, which needs a runtime with virtual threads, is
+ * compared with <code>-p strategy=virtualThreads</code>.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionStrategyBenchmark {
+
+  @Param({ "sequential", "threadPool", "commonPool" })
+  public String strategy;
+
+  @Param({ "true", "false" })
+  public boolean parallelCandidates;
+
+  private Configuration configuration;
+
+  @Setup
+  public void setUp() {
+    final ExecutionStrategy s;
+    if ("sequential".equals(strategy)) s = ExecutionStrategy.sequential();
+    else if ("threadPool".equals(strategy)) s = ExecutionStrategy.threadPool();
+    else if ("commonPool".equals(strategy)) s = ExecutionStrategy.commonPool();
+    else if ("virtualThreads".equals(strategy)) s = ExecutionStrategy.virtualThreads();
+    else throw new IllegalArgumentException("unknown strategy: " + strategy);
+    configuration = Configuration.builder().parallelCandidates(parallelCandidates).executionStrategy(s).build();
+  }
+
+  @Benchmark
+  public ImmutableSet<Match> getMatches(LeagueState league) throws InterruptedException {
+    Executor executor = configuration.getExecutionStrategy().newExecutor();
+    try {
+      return new MatchMaker(configuration, league.league, league.size, executor, true).getMatches();
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+}
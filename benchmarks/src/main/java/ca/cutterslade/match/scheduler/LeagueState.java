@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A league described by the number of teams, tiers, days and teams per match.
+ * Each day has two times on two courts in as many gyms as are needed for
+ * every team to play, a multiple of the number of tiers so that each tier has
+ * the same number of places; places not taken by a team are filled with byes,
+ * as the {@link Scheduler} does.
+ *
+ * @author W.F. Hartford
+ */
+@State(Scope.Benchmark)
+public class LeagueState {
+
+  private static final int COURTS = 2;
+
+  private static final int TIMES = 2;
+
+  @Param({ "24", "48" })
+  public int teams;
+
+  @Param({ "2", "3" })
+  public int tiers;
+
+  @Param({ "2", "4" })
+  public int size;
+
+  @Param({ "6" })
+  public int days;
+
+  ImmutableSet<Slot> slots;
+
+  ImmutableSet<Team> leagueTeams;
+
+  CompiledLeague league;
+
+  @Setup
+  public void setUp() {
+    int placesPerGym = COURTS * TIMES * size;
+    int gyms = tiers * (int) Math.ceil(teams / (double) (tiers * placesPerGym));
+    ImmutableSet<Gym> g = Gym.forNames(setOf(gyms));
+    slots = Slot.forNames(Time.forNames(setOf(TIMES)), Court.forNames(setOf(COURTS), g), Day.forNames(setOf(days)));
+    ImmutableSet<Tier> t = Tier.forNames(setOf(tiers));
+    int tierSize = gyms * placesPerGym / tiers;
+    ImmutableSet<Team> realTeams = Team.forNames(setOf(teams), t, tierSize);
+    ImmutableSet.Builder<Team> b = ImmutableSet.builder();
+    for (Tier tier : t) {
+      ImmutableSet<Team> tierTeams = ImmutableSet.copyOf(tier.getTeams(realTeams));
+      b.addAll(tierTeams);
+      for (int i = 0, n = tierSize - tierTeams.size(); i < n; i++)
+        b.add(new Team("B" + i, tier));
+    }
+    leagueTeams = b.build();
+    league = new CompiledLeague(slots, leagueTeams);
+  }
+
+  private static ImmutableSet<String> setOf(int n) {
+    ImmutableSet.Builder<String> b = ImmutableSet.builder();
+    for (int i = 0; i < n; i++)
+      b.add(String.valueOf(i));
+    return b.build();
+  }
+}
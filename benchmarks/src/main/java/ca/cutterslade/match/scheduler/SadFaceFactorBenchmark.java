@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Scores the candidates for the first slot of the last day of a league against
+ * the matches of every other day, one factor at a time, both from a
+ * {@link ScoringState} and by scanning the existing matches. At most
+ * {@link #CANDIDATES} candidates are scored per invocation.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SadFaceFactorBenchmark {
+
+  private static final int CANDIDATES = 256;
+
+  @Param({ "GYM", "TIME", "COURT", "MATCH_UP", "BYE_MATCH", "TIER_PER_GYM" })
+  public SadFaceFactor factor;
+
+  private int slot;
+
+  private int[][] matches;
+
+  private List<ImmutableSet<Team>> teamSets;
+
+  private ScoringState state;
+
+  private List<Match> history;
+
+  @Setup
+  public void setUp(LeagueState league) throws InterruptedException {
+    CompiledLeague l = league.league;
+    int[][] slotMatches = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, l, league.size, new Executor(true), true).solve();
+    int lastDay = l.getDayCount() - 1;
+    state = new ScoringState(l);
+    history = Lists.newArrayList();
+    for (int s = 0; s < slotMatches.length; s++)
+      if (lastDay != l.getSlotDay(s)) {
+        state.add(s, slotMatches[s]);
+        history.add(new Match(l.getTeams(slotMatches[s]), l.getSlot(s)));
+      }
+    slot = l.getDaySlots(lastDay)[0];
+    CandidatePool pool = CandidatePool.forLeague(l, league.size, false);
+    matches = new int[Math.min(CANDIDATES, pool.getCount())][];
+    teamSets = Lists.newArrayList();
+    for (int m = 0; m < matches.length; m++) {
+      matches[m] = pool.getMatch(m);
+      teamSets.add(l.getTeams(matches[m]));
+    }
+  }
+
+  @Benchmark
+  public int incremental() {
+    int sadFaces = 0;
+    for (int[] m : matches)
+      sadFaces += factor.getSadFaces(slot, m, state, Integer.MAX_VALUE);
+    return sadFaces;
+  }
+
+  @Benchmark
+  public int scan() {
+    Slot s = state.getLeague().getSlot(slot);
+    int sadFaces = 0;
+    for (ImmutableSet<Team> m : teamSets)
+      sadFaces += factor.getSadFaces(s, m, history, Integer.MAX_VALUE);
+    return sadFaces;
+  }
+}
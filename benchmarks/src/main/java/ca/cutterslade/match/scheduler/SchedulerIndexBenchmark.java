@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Builds the indexes made by the {@link Scheduler} constructor: the compiled
+ * league before scheduling, and the {@link MatchIndex} of matches by day, time
+ * and court after; and looks up the match of every slot, as printing a
+ * schedule does.
+ *
+ * @author W.F. Hartford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchedulerIndexBenchmark {
+
+  private ImmutableSet<Day> days;
+
+  private ImmutableSet<Time> times;
+
+  private ImmutableSet<Court> courts;
+
+  private ImmutableSet<Match> matches;
+
+  private MatchIndex index;
+
+  @Setup
+  public void setUp(LeagueState league) throws InterruptedException {
+    ImmutableSet.Builder<Day> d = ImmutableSet.builder();
+    ImmutableSet.Builder<Time> t = ImmutableSet.builder();
+    ImmutableSet.Builder<Court> c = ImmutableSet.builder();
+    for (Slot s : league.slots) {
+      d.add(s.getDay());
+      t.add(s.getTime());
+      c.add(s.getCourt());
+    }
+    days = d.build();
+    times = t.build();
+    courts = c.build();
+    matches = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league.league, league.size, new Executor(true), true).getMatches();
+    index = new MatchIndex(days, times, courts, matches);
+  }
+
+  @Benchmark
+  public CompiledLeague compiledLeague(LeagueState league) {
+    return new CompiledLeague(league.slots, league.leagueTeams);
+  }
+
+  @Benchmark
+  public MatchIndex matchIndex() {
+    return new MatchIndex(days, times, courts, matches);
+  }
+
+  @Benchmark
+  public void getMatch(Blackhole blackhole) {
+    for (Day d : days)
+      for (Time t : times)
+        for (Court c : courts)
+          blackhole.consume(index.getMatch(d, t, c));
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+/**
+ * Schedules many leagues in one JVM. Each line of the job file names a league
+ * and gives the arguments {@link Main} would take for it, such as
+ * <code>north -t 48 -r 3 -d 12 -m 2 -g 3 -c 2 -z 4</code>; blank lines and
+ * lines starting with <code>#</code> are ignored. The leagues are scheduled
+ * concurrently by a fixed number of threads, and the output {@link Main} would
+ * print for each is written to <code>name.txt</code> in the output directory; a
+ * league whose name would put the file anywhere else fails. The job file is
+ * read only as fast as the leagues are scheduled, at most a bounded number of
+ * jobs being queued for the threads at a time. Each league is scheduled with
+ * the {@link ExecutionStrategy#sequential() sequential} strategy unless its
+ * arguments choose another, so that the threads of the batch are the only ones
+ * used. Once every league is done, a report of the time taken by each is
+ * printed.
+ *
+ * @author W.F. Hartford
+ */
+public final class Batch {
+
+  /**
+   * The scheduling of a single league, which records its outcome; the
+   * schedule itself is written out and not kept, so that the jobs of a long
+   * batch hold little memory while they wait for the report. Anything
+   * thrown while the league is scheduled, even an {@link Error}, fails that
+   * league alone.
+   */
+  static final class Job implements Callable<Job> {
+
+    private final String name;
+
+    private final String[] args;
+
+    private final File output;
+
+    private final long submitted = System.nanoTime();
+
+    private long waitNanos;
+
+    private long nanos;
+
+    private long sadFaces;
+
+    private boolean degraded;
+
+    private String error;
+
+    Job(String name, String[] args, File output) {
+      this.name = name;
+      this.args = args;
+      this.output = output;
+    }
+
+    /**
+     * Create a job which fails without scheduling anything.
+     */
+    Job(String name, String error) {
+      this(name, null, null);
+      this.error = error;
+    }
+
+    @Override
+    public Job call() throws InterruptedException {
+      long start = System.nanoTime();
+      waitNanos = start - submitted;
+      if (null != error) return this;
+      try {
+        CommandLine line = Main.parse(args);
+        Scheduler scheduler = Main.schedule(line, Main.configuration(line, ExecutionStrategy.sequential()));
+        Files.write(Main.output(scheduler), output, Charsets.UTF_8);
+        sadFaces = scheduler.getSadFaces();
+        degraded = scheduler.isDegraded();
+      }
+      catch (ParseException e) {
+        error = "invalid arguments: " + e.getMessage();
+      }
+      catch (InterruptedException e) {
+        throw e;
+      }
+      catch (Throwable e) {
+        error = e.toString();
+      }
+      nanos = System.nanoTime() - start;
+      return this;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    /**
+     * @return the sad faces of the league's schedule
+     */
+    long getSadFaces() {
+      return sadFaces;
+    }
+
+    boolean isDegraded() {
+      return degraded;
+    }
+
+    /**
+     * @return the reason the league failed, or <code>null</code> if it did not
+     */
+    String getError() {
+      return error;
+    }
+  }
+
+  private static final Options OPTIONS;
+  static {
+    final Options o = new Options();
+    o.addOption(OptionBuilder.withLongOpt("jobs").hasArg().withArgName("file").withDescription("The file of leagues to schedule, one per line").isRequired().create('j'));
+    o.addOption(OptionBuilder.withLongOpt("output").hasArg().withArgName("directory").withDescription("The directory to write the schedule of each league to").isRequired().create('o'));
+    o.addOption(OptionBuilder.withLongOpt("threads").hasArg().withArgName("count").withDescription("The number of leagues to schedule at a time").create());
+    o.addOption(OptionBuilder.withLongOpt("queue").hasArg().withArgName("count").withDescription("The number of leagues read ahead of those being scheduled").create());
+    OPTIONS = o;
+  }
+
+  private Batch() {}
+
+  public static void main(final String[] args) throws InterruptedException, IOException {
+    try {
+      final CommandLine line = new PosixParser().parse(OPTIONS, args);
+      final int threads = count(line, "threads", Runtime.getRuntime().availableProcessors(), 1);
+      final int queue = count(line, "queue", threads, 0);
+      final long start = System.nanoTime();
+      final List<Job> jobs = run(new File(line.getOptionValue('j')), new File(line.getOptionValue('o')), threads, queue);
+      System.out.print(report(jobs, System.nanoTime() - start));
+    }
+    catch (final ParseException e) {
+      final HelpFormatter f = new HelpFormatter();
+      final PrintWriter pw = new PrintWriter(System.err);
+      pw.println(e.getMessage());
+      f.printHelp(pw, 80, "match-scheduler-batch", null, OPTIONS, 2, 2, null, true);
+      pw.println("For example: match-scheduler-batch -j leagues.txt -o schedules --threads 4");
+      pw.close();
+    }
+  }
+
+  /**
+   * @return the value of the option, or <code>defaultValue</code> if it is not
+   *         given
+   * @throws ParseException
+   *           if the value is not a number of at least <code>min</code>
+   */
+  static int count(CommandLine line, String option, int defaultValue, int min) throws ParseException {
+    if (!line.hasOption(option)) return defaultValue;
+    final int count;
+    try {
+      count = Integer.parseInt(line.getOptionValue(option));
+    }
+    catch (NumberFormatException e) {
+      throw new ParseException(option + " must be a number: " + line.getOptionValue(option));
+    }
+    if (min > count) throw new ParseException(option + " must be " + min + " or greater: " + count);
+    return count;
+  }
+
+  /**
+   * Schedule every league of the job file.
+   *
+   * @param threads
+   *          the number of leagues to schedule at a time
+   * @param queue
+   *          the number of leagues which may wait for a thread; reading the
+   *          job file blocks while this many are waiting
+   * @return the jobs, in the order of the job file
+   */
+  static List<Job> run(File jobFile, File output, int threads, int queue) throws IOException, InterruptedException {
+    if (1 > threads) throw new IllegalArgumentException("threads must be one or greater");
+    if (0 > queue) throw new IllegalArgumentException("queue may not be negative");
+    if (!output.isDirectory() && !output.mkdirs()) throw new IOException("could not create " + output);
+    File directory = output.getCanonicalFile();
+    final Semaphore permits = new Semaphore(threads + queue);
+    ExecutorService service = Executors.newFixedThreadPool(threads, Executor.DAEMON_THREAD_FACTORY);
+    try {
+      List<Future<Job>> futures = Lists.newArrayList();
+      Set<String> names = Sets.newHashSet();
+      BufferedReader reader = Files.newReader(jobFile, Charsets.UTF_8);
+      try {
+        for (String l = reader.readLine(); null != l; l = reader.readLine()) {
+          String trimmed = l.trim();
+          if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+          String[] words = trimmed.split("\\s+");
+          String name = words[0];
+          permits.acquire();
+          final Job job;
+          File file = new File(output, name + ".txt");
+          if (!directory.equals(file.getCanonicalFile().getParentFile())) job = new Job(name, "invalid league name");
+          else if (names.add(name)) job = new Job(name, Arrays.copyOfRange(words, 1, words.length), file);
+          else job = new Job(name, "duplicate league name");
+          futures.add(service.submit(new Callable<Job>() {
+
+            @Override
+            public Job call() throws InterruptedException {
+              try {
+                return job.call();
+              }
+              finally {
+                permits.release();
+              }
+            }
+          }));
+        }
+      }
+      finally {
+        reader.close();
+      }
+      ImmutableList.Builder<Job> b = ImmutableList.builder();
+      for (Future<Job> f : futures)
+        try {
+          b.add(f.get());
+        }
+        catch (ExecutionException e) {
+          throw new AssertionError(e);
+        }
+      return b.build();
+    }
+    finally {
+      service.shutdownNow();
+    }
+  }
+
+  /**
+   * @return a line for each job, giving the time it waited for a thread and
+   *         the time it took, followed by the totals
+   */
+  static String report(List<Job> jobs, long nanos) {
+    final StringWriter w = new StringWriter();
+    final PrintWriter p = new PrintWriter(w);
+    final String format = "%-20s %8s %10s %10s %10s%n";
+    p.printf(format, "League", "Status", "Wait ms", "Time ms", "Sad faces");
+    int failed = 0;
+    long total = 0;
+    for (final Job job : jobs) {
+      total += job.nanos;
+      if (null == job.error) {
+        p.printf(format, job.name, job.degraded ? "degraded" : "ok", millis(job.waitNanos), millis(job.nanos), job.sadFaces);
+      }
+      else {
+        failed++;
+        p.printf(format, job.name, "failed", millis(job.waitNanos), millis(job.nanos), "-");
+        p.printf("  %s%n", job.error);
+      }
+    }
+    p.printf("%d leagues, %d failed, %d ms scheduling in %d ms%n", jobs.size(), failed, millis(total), millis(nanos));
+    p.close();
+    return w.toString();
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A flight recorder event recording the choice of the best match for one
+ * slot. There is one choice per slot, so only choices taking longer than the
+ * threshold, five milliseconds by default, are recorded.
+ *
+ * @author W.F. Hartford
+ */
+@Name("ca.cutterslade.match.scheduler.BestMatch")
+@Label("Best Match")
+@Category("Match Scheduler")
+@Description("The choice of the best match for one slot")
+@Threshold("5 ms")
+final class BestMatchEvent extends Event {
+
+  @Label("Day")
+  String day;
+
+  @Label("Slot")
+  String slot;
+
+  @Label("Candidates")
+  @Description("The number of candidates considered, available or not")
+  int candidates;
+
+  @Label("Sad Faces")
+  @Description("The sad faces of the chosen match")
+  int sadFaces;
+}
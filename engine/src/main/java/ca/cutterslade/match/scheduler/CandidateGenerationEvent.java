@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A flight recorder event recording the generation of the possible matches of
+ * a league.
+ *
+ * @author W.F. Hartford
+ */
+@Name("ca.cutterslade.match.scheduler.CandidateGeneration")
+@Label("Candidate Generation")
+@Category("Match Scheduler")
+@Description("The generation of the possible matches of a league")
+@Threshold("1 ms")
+final class CandidateGenerationEvent extends Event {
+
+  @Label("Candidates")
+  int candidates;
+
+  @Label("Teams per Match")
+  int size;
+}
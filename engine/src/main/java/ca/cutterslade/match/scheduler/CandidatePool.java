@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * The possible matches of a league, held as packed primitives rather than an
+ * object per match. The team ids of candidate <code>c</code> are the
+ * <code>size</code> ints starting at <code>c * size</code> of a single array,
+ * and its {@link TeamBits} mask is the words starting at
+ * <code>c * words</code> of another, so the whole pool is two arrays however
+ * many candidates there are. An indexed pool also holds, for each team, the
+ * ascending indexes of the candidates which include it.
+ *
+ * @author W.F. Hartford
+ */
+final class CandidatePool {
+
+  private final int size;
+
+  private final int words;
+
+  private final int count;
+
+  private final int[] teams;
+
+  private final long[] masks;
+
+  private final int[] teamOffsets;
+
+  private final int[] teamCandidates;
+
+  /**
+   * Create a pool of every match of <code>size</code> teams from a single
+   * tier, taking a match from each tier in turn.
+   *
+   * @param indexed
+   *          if <code>true</code>, the candidates of each team are indexed
+   */
+  static CandidatePool forLeague(CompiledLeague league, int size, boolean indexed) {
+    List<Combinations> tiers = Lists.newArrayList();
+    long count = 0;
+    for (int i = 0; i < league.getTierCount(); i++) {
+      tiers.add(new Combinations(league.getTierTeams(i), size));
+      count += Combinations.count(league.getTierTeams(i).length, size);
+    }
+    return new CandidatePool(league.getTeamCount(), size, count, new AlternatingIterable<int[]>(tiers), indexed);
+  }
+
+  /**
+   * @param teamCount
+   *          the number of teams in the league
+   * @param count
+   *          the number of candidates produced by <code>candidates</code>
+   */
+  CandidatePool(int teamCount, int size, long count, Iterable<int[]> candidates, boolean indexed) {
+    if (null == candidates) throw new IllegalArgumentException("candidates may not be null");
+    this.size = size;
+    this.words = TeamBits.words(teamCount);
+    if (Integer.MAX_VALUE / Math.max(size, words) < count) throw new IllegalArgumentException("too many possible matches: " + count);
+    this.count = (int) count;
+    this.teams = new int[this.count * size];
+    this.masks = new long[this.count * words];
+    int c = 0;
+    for (int[] candidate : candidates) {
+      if (size != candidate.length) throw new IllegalArgumentException("candidate has " + candidate.length + " teams, not " + size);
+      System.arraycopy(candidate, 0, teams, c * size, size);
+      for (int t : candidate)
+        masks[c * words + (t >>> 6)] |= 1L << t;
+      c++;
+    }
+    if (this.count != c) throw new IllegalArgumentException("expected " + count + " candidates, got " + c);
+    if (indexed) {
+      teamOffsets = new int[teamCount + 1];
+      for (int t : teams)
+        teamOffsets[t + 1]++;
+      for (int t = 0; t < teamCount; t++)
+        teamOffsets[t + 1] += teamOffsets[t];
+      teamCandidates = new int[teams.length];
+      int[] next = teamOffsets.clone();
+      for (int i = 0; i < teams.length; i++)
+        teamCandidates[next[teams[i]]++] = i / size;
+    }
+    else {
+      teamOffsets = null;
+      teamCandidates = null;
+    }
+  }
+
+  int getCount() {
+    return count;
+  }
+
+  int getSize() {
+    return size;
+  }
+
+  boolean isIndexed() {
+    return null != teamCandidates;
+  }
+
+  /**
+   * @return the number of candidates which include the team; the pool must be
+   *         indexed
+   */
+  int getCandidateCount(int team) {
+    return teamOffsets[team + 1] - teamOffsets[team];
+  }
+
+  /**
+   * @return the index of the <code>i</code>th candidate which includes the
+   *         team, candidates being in ascending order; the pool must be indexed
+   */
+  int getCandidate(int team, int i) {
+    return teamCandidates[teamOffsets[team] + i];
+  }
+
+  /**
+   * @return <code>true</code> if every team of the candidate is in the
+   *         <code>available</code> bitset
+   */
+  boolean isAvailable(int candidate, long[] available) {
+    int base = candidate * words;
+    for (int w = 0; w < words; w++)
+      if (0 != (masks[base + w] & ~available[w])) return false;
+    return true;
+  }
+
+  /**
+   * Remove the teams of the candidate from the <code>available</code> bitset.
+   */
+  void removeFrom(long[] available, int candidate) {
+    int base = candidate * words;
+    for (int w = 0; w < words; w++)
+      available[w] &= ~masks[base + w];
+  }
+
+  /**
+   * @return a new array holding the team ids of the candidate
+   */
+  int[] getMatch(int candidate) {
+    int[] match = new int[size];
+    getMatch(candidate, match);
+    return match;
+  }
+
+  /**
+   * Copy the team ids of the candidate into <code>match</code>, which must
+   * have a length of at least {@link #getSize()}.
+   */
+  void getMatch(int candidate, int[] match) {
+    System.arraycopy(teams, candidate * size, match, 0, size);
+  }
+}
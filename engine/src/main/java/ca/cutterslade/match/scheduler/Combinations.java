@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The combinations of <code>size</code> elements of an array, each produced
+ * once and lazily, in lexicographic order of the positions of the chosen
+ * elements. Each combination is a new array holding the chosen elements in
+ * the order they appear in the source array.
+ *
+ * @author W.F. Hartford
+ */
+final class Combinations implements Iterable<int[]> {
+
+  private final int[] elements;
+
+  private final int size;
+
+  Combinations(int[] elements, int size) {
+    if (null == elements) throw new IllegalArgumentException("elements may not be null");
+    if (1 > size) throw new IllegalArgumentException("size must be one or greater");
+    this.elements = elements;
+    this.size = size;
+  }
+
+  /**
+   * @return the number of combinations of <code>size</code> elements chosen
+   *         from <code>n</code>
+   */
+  static long count(int n, int size) {
+    if (size > n) return 0;
+    long count = 1;
+    for (int i = 1; i <= size; i++)
+      count = count * (n - size + i) / i;
+    return count;
+  }
+
+  @Override
+  public Iterator<int[]> iterator() {
+    return new Iterator<int[]>() {
+
+      private final int[] positions = initialPositions();
+
+      private int[] initialPositions() {
+        if (size > elements.length) return null;
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++)
+          positions[i] = i;
+        return positions;
+      }
+
+      private boolean advanced = true;
+
+      private boolean exhausted = null == positions;
+
+      @Override
+      public boolean hasNext() {
+        if (!advanced) advance();
+        return !exhausted;
+      }
+
+      private void advance() {
+        advanced = true;
+        int i = size - 1;
+        while (0 <= i && positions[i] == elements.length - size + i)
+          i--;
+        if (0 > i) {
+          exhausted = true;
+          return;
+        }
+        positions[i]++;
+        for (int j = i + 1; j < size; j++)
+          positions[j] = positions[j - 1] + 1;
+      }
+
+      @Override
+      public int[] next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        advanced = false;
+        int[] combination = new int[size];
+        for (int i = 0; i < size; i++)
+          combination[i] = elements[positions[i]];
+        return combination;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
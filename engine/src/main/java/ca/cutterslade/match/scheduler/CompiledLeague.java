@@ -0,0 +1,264 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+/**
+ * The slots and teams of a league compiled to a dense integer representation
+ * for use by the {@link MatchMaker}. Every entity is given an id from zero up
+ * to the number of entities of its kind, in the order the entities were first
+ * encountered, and the attributes of each slot and team are held in flat
+ * arrays indexed by those ids so that scoring does not need to hash or compare
+ * the domain objects.
+ *
+ * @author W.F. Hartford
+ */
+final class CompiledLeague {
+
+  private final ImmutableList<Slot> slots;
+
+  private final ImmutableList<Team> teams;
+
+  private final ImmutableList<Day> days;
+
+  private final ImmutableList<Gym> gyms;
+
+  private final ImmutableList<Court> courts;
+
+  private final ImmutableList<Time> times;
+
+  private final ImmutableList<Tier> tiers;
+
+  private final ImmutableMap<Team, Integer> teamIds;
+
+  private final ImmutableMap<Slot, Integer> slotIds;
+
+  private final int[] slotDays;
+
+  private final int[] slotGyms;
+
+  private final int[] slotCourts;
+
+  private final int[] slotTimes;
+
+  private final int[] teamTiers;
+
+  private final boolean[] byes;
+
+  private final int[][] daySlots;
+
+  private final int[][] tierTeams;
+
+  CompiledLeague(ImmutableSet<Slot> slots, ImmutableSet<Team> teams) {
+    if (null == slots) throw new IllegalArgumentException("slots may not be null");
+    if (null == teams) throw new IllegalArgumentException("teams may not be null");
+    this.slots = slots.asList();
+    this.teams = teams.asList();
+    Set<Day> days = Sets.newLinkedHashSet();
+    Set<Gym> gyms = Sets.newLinkedHashSet();
+    Set<Court> courts = Sets.newLinkedHashSet();
+    Set<Time> times = Sets.newLinkedHashSet();
+    for (Slot s : slots) {
+      days.add(s.getDay());
+      gyms.add(s.getGym());
+      courts.add(s.getCourt());
+      times.add(s.getTime());
+    }
+    Set<Tier> tiers = Sets.newLinkedHashSet();
+    for (Team t : teams)
+      tiers.add(t.getTier());
+    this.days = ImmutableList.copyOf(days);
+    this.gyms = ImmutableList.copyOf(gyms);
+    this.courts = ImmutableList.copyOf(courts);
+    this.times = ImmutableList.copyOf(times);
+    this.tiers = ImmutableList.copyOf(tiers);
+    this.teamIds = index(this.teams);
+    this.slotIds = index(this.slots);
+
+    ImmutableMap<Day, Integer> dayIds = index(this.days);
+    ImmutableMap<Gym, Integer> gymIds = index(this.gyms);
+    ImmutableMap<Court, Integer> courtIds = index(this.courts);
+    ImmutableMap<Time, Integer> timeIds = index(this.times);
+    ImmutableMap<Tier, Integer> tierIds = index(this.tiers);
+
+    int nSlots = this.slots.size();
+    this.slotDays = new int[nSlots];
+    this.slotGyms = new int[nSlots];
+    this.slotCourts = new int[nSlots];
+    this.slotTimes = new int[nSlots];
+    List<List<Integer>> daySlots = newLists(this.days.size());
+    for (int i = 0; i < nSlots; i++) {
+      Slot s = this.slots.get(i);
+      slotDays[i] = dayIds.get(s.getDay());
+      slotGyms[i] = gymIds.get(s.getGym());
+      slotCourts[i] = courtIds.get(s.getCourt());
+      slotTimes[i] = timeIds.get(s.getTime());
+      daySlots.get(slotDays[i]).add(i);
+    }
+    this.daySlots = toArrays(daySlots);
+
+    int nTeams = this.teams.size();
+    this.teamTiers = new int[nTeams];
+    this.byes = new boolean[nTeams];
+    List<List<Integer>> tierTeams = newLists(this.tiers.size());
+    for (int i = 0; i < nTeams; i++) {
+      Team t = this.teams.get(i);
+      teamTiers[i] = tierIds.get(t.getTier());
+      byes[i] = t.isBye();
+      tierTeams.get(teamTiers[i]).add(i);
+    }
+    this.tierTeams = toArrays(tierTeams);
+  }
+
+  private static <T> ImmutableMap<T, Integer> index(Iterable<T> values) {
+    ImmutableMap.Builder<T, Integer> b = ImmutableMap.builder();
+    int i = 0;
+    for (T value : values)
+      b.put(value, i++);
+    return b.build();
+  }
+
+  private static List<List<Integer>> newLists(int n) {
+    List<List<Integer>> lists = Lists.newArrayListWithCapacity(n);
+    for (int i = 0; i < n; i++)
+      lists.add(Lists.<Integer> newArrayList());
+    return lists;
+  }
+
+  private static int[][] toArrays(List<List<Integer>> lists) {
+    int[][] arrays = new int[lists.size()][];
+    for (int i = 0; i < arrays.length; i++)
+      arrays[i] = Ints.toArray(lists.get(i));
+    return arrays;
+  }
+
+  ImmutableSet<Slot> getSlots() {
+    return ImmutableSet.copyOf(slots);
+  }
+
+  ImmutableSet<Team> getTeams() {
+    return ImmutableSet.copyOf(teams);
+  }
+
+  int getSlotCount() {
+    return slots.size();
+  }
+
+  int getTeamCount() {
+    return teams.size();
+  }
+
+  int getDayCount() {
+    return days.size();
+  }
+
+  int getGymCount() {
+    return gyms.size();
+  }
+
+  int getCourtCount() {
+    return courts.size();
+  }
+
+  int getTimeCount() {
+    return times.size();
+  }
+
+  int getTierCount() {
+    return tiers.size();
+  }
+
+  Slot getSlot(int slot) {
+    return slots.get(slot);
+  }
+
+  Team getTeam(int team) {
+    return teams.get(team);
+  }
+
+  int getTeamId(Team team) {
+    Integer id = teamIds.get(team);
+    if (null == id) throw new IllegalArgumentException(team + " is not part of this league");
+    return id.intValue();
+  }
+
+  int getSlotId(Slot slot) {
+    Integer id = slotIds.get(slot);
+    if (null == id) throw new IllegalArgumentException(slot + " is not part of this league");
+    return id.intValue();
+  }
+
+  int getSlotDay(int slot) {
+    return slotDays[slot];
+  }
+
+  int getSlotGym(int slot) {
+    return slotGyms[slot];
+  }
+
+  int getSlotCourt(int slot) {
+    return slotCourts[slot];
+  }
+
+  int getSlotTime(int slot) {
+    return slotTimes[slot];
+  }
+
+  int getTeamTier(int team) {
+    return teamTiers[team];
+  }
+
+  boolean isBye(int team) {
+    return byes[team];
+  }
+
+  /**
+   * @return the ids of the slots on the given day, in slot order; the returned
+   *         array is shared and must not be modified
+   */
+  int[] getDaySlots(int day) {
+    return daySlots[day];
+  }
+
+  /**
+   * @return the ids of the teams in the given tier, in team order; the
+   *         returned array is shared and must not be modified
+   */
+  int[] getTierTeams(int tier) {
+    return tierTeams[tier];
+  }
+
+  int[] getTeamIds(Iterable<Team> teams) {
+    List<Integer> ids = Lists.newArrayList();
+    for (Team t : teams)
+      ids.add(getTeamId(t));
+    return Ints.toArray(ids);
+  }
+
+  ImmutableSet<Team> getTeams(int[] match) {
+    ImmutableSet.Builder<Team> b = ImmutableSet.builder();
+    for (int t : match)
+      b.add(teams.get(t));
+    return b.build();
+  }
+}
@@ -1,101 +1,493 @@
-/*
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
- * 
- * http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
- */
-package ca.cutterslade.match.scheduler;
-
-import java.io.Serializable;
-import java.util.Map;
-
-import com.google.common.collect.ImmutableMap;
-
-public class Configuration implements Serializable {
-
-  /**
-   * 1
-   */
-  private static final long serialVersionUID = 1L;
-
-  static final Configuration DEFAULT_CONFIGURATION = new Configuration(false);
-
-  static final Configuration RANDOM_CONFIGURATION = new Configuration(true);
-
-  private final ImmutableMap<SadFaceFactor, Integer> factors;
-
-  private final boolean randomizeMatchOrder;
-
-  private final boolean randomizeDayOrder;
-
-  private final boolean randomizeSlotOrder;
-
-  public Configuration(boolean random) {
-    this(null, random, random, random);
-  }
-
-  public Configuration(Map<SadFaceFactor, Integer> factors, boolean random) {
-    this(factors, random, random, random);
-  }
-
-  public Configuration(Map<SadFaceFactor, Integer> factors, boolean randomizeMatchOrder, boolean randomizeDayOrder, boolean randomizeSlotOrder) {
-    this.factors = null == factors ? ImmutableMap.<SadFaceFactor, Integer> of() : ImmutableMap.copyOf(factors);
-    this.randomizeMatchOrder = randomizeMatchOrder;
-    this.randomizeDayOrder = randomizeDayOrder;
-    this.randomizeSlotOrder = randomizeSlotOrder;
-  }
-
-  int getFactor(SadFaceFactor factor) {
-    Integer value = factors.get(factor);
-    return null == value ? factor.getDefaultValue() : value.intValue();
-  }
-
-  boolean isRandomizeMatchOrder() {
-    return randomizeMatchOrder;
-  }
-
-  boolean isRandomizeDayOrder() {
-    return randomizeDayOrder;
-  }
-
-  boolean isRandomizeSlotOrder() {
-    return randomizeSlotOrder;
-  }
-
-  @Override
-  public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + factors.hashCode();
-    result = prime * result + (randomizeDayOrder ? 1231 : 1237);
-    result = prime * result + (randomizeMatchOrder ? 1231 : 1237);
-    result = prime * result + (randomizeSlotOrder ? 1231 : 1237);
-    return result;
-  }
-
-  @Override
-  public boolean equals(Object obj) {
-    if (this == obj) return true;
-    if (obj == null) return false;
-    if (getClass() != obj.getClass()) return false;
-    Configuration other = (Configuration) obj;
-    if (!factors.equals(other.factors)) return false;
-    if (randomizeDayOrder != other.randomizeDayOrder) return false;
-    if (randomizeMatchOrder != other.randomizeMatchOrder) return false;
-    if (randomizeSlotOrder != other.randomizeSlotOrder) return false;
-    return true;
-  }
-
-  @Override
-  public String toString() {
-    return "Configuration [factors=" + factors + ", randomizeMatchOrder=" + randomizeMatchOrder + ", randomizeDayOrder=" + randomizeDayOrder + ", randomizeSlotOrder=" + randomizeSlotOrder + "]";
-  }
-
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+public class Configuration implements Serializable {
+
+  /**
+   * Builds {@link Configuration}s; every option defaults to the behaviour of
+   * {@link Configuration#DEFAULT_CONFIGURATION}.
+   */
+  public static final class Builder {
+
+    private Map<SadFaceFactor, Integer> factors;
+
+    private Map<SadFaceScorer.Factory, Integer> scorers = Maps.newLinkedHashMap();
+
+    private boolean randomizeMatchOrder;
+
+    private boolean randomizeDayOrder;
+
+    private boolean randomizeSlotOrder;
+
+    private boolean parallelCandidates;
+
+    private int portfolioRuns = 1;
+
+    private long portfolioBudgetMillis;
+
+    private long improvementMoves;
+
+    private double annealingTemperature;
+
+    private boolean anchoredSearch;
+
+    private SchedulerListener listener;
+
+    private long deadlineMillis;
+
+    private Long seed;
+
+    private ExecutionStrategy executionStrategy;
+
+    Builder() {}
+
+    Builder(Configuration configuration) {
+      this.factors = configuration.factors;
+      this.scorers.putAll(configuration.getScorers());
+      this.randomizeMatchOrder = configuration.randomizeMatchOrder;
+      this.randomizeDayOrder = configuration.randomizeDayOrder;
+      this.randomizeSlotOrder = configuration.randomizeSlotOrder;
+      this.parallelCandidates = configuration.parallelCandidates;
+      this.portfolioRuns = configuration.portfolioRuns;
+      this.portfolioBudgetMillis = configuration.portfolioBudgetMillis;
+      this.improvementMoves = configuration.improvementMoves;
+      this.annealingTemperature = configuration.annealingTemperature;
+      this.anchoredSearch = configuration.anchoredSearch;
+      this.listener = configuration.listener;
+      this.deadlineMillis = configuration.deadlineMillis;
+      this.seed = configuration.seed;
+      this.executionStrategy = configuration.executionStrategy;
+    }
+
+    public Builder factors(Map<SadFaceFactor, Integer> factors) {
+      this.factors = factors;
+      return this;
+    }
+
+    /**
+     * Register a factor in addition to the built-in {@link SadFaceFactor}s; a
+     * scorer is created from the factory for each schedule made. Registered
+     * factors are scored in the order they were registered, after the
+     * built-in ones, and registering a factory again replaces its weight.
+     * Registered factors are not serialized, and a schedule is only
+     * {@link ScheduleCache cached} if every factory is serializable.
+     * Registering a built-in factor sets its weight, as
+     * {@link #factors(Map)} does, since the built-in factors are always
+     * scored.
+     *
+     * @param weight
+     *          the number by which the sad faces of the factor are multiplied,
+     *          which may not be negative
+     */
+    public Builder factor(SadFaceScorer.Factory factory, int weight) {
+      if (null == factory) throw new IllegalArgumentException("factory may not be null");
+      if (0 > weight) throw new IllegalArgumentException("weight may not be negative");
+      if (factory instanceof SadFaceFactor) {
+        Map<SadFaceFactor, Integer> factors = Maps.newEnumMap(SadFaceFactor.class);
+        if (null != this.factors) factors.putAll(this.factors);
+        factors.put((SadFaceFactor) factory, weight);
+        this.factors = factors;
+      }
+      else this.scorers.put(factory, weight);
+      return this;
+    }
+
+    public Builder random(boolean random) {
+      return randomizeMatchOrder(random).randomizeDayOrder(random).randomizeSlotOrder(random);
+    }
+
+    public Builder randomizeMatchOrder(boolean randomizeMatchOrder) {
+      this.randomizeMatchOrder = randomizeMatchOrder;
+      return this;
+    }
+
+    public Builder randomizeDayOrder(boolean randomizeDayOrder) {
+      this.randomizeDayOrder = randomizeDayOrder;
+      return this;
+    }
+
+    public Builder randomizeSlotOrder(boolean randomizeSlotOrder) {
+      this.randomizeSlotOrder = randomizeSlotOrder;
+      return this;
+    }
+
+    /**
+     * @param parallelCandidates
+     *          if <code>true</code>, the candidate matches for each slot are
+     *          divided into chunks which are scored concurrently on a fork/join
+     *          pool, each candidate being scored entirely by one thread;
+     *          otherwise candidates are scored one at a time, with the factors
+     *          of each candidate calculated concurrently
+     */
+    public Builder parallelCandidates(boolean parallelCandidates) {
+      this.parallelCandidates = parallelCandidates;
+      return this;
+    }
+
+    /**
+     * @param runs
+     *          the number of independent passes to make, each with the order of
+     *          days and slots randomized; the passes run concurrently and the
+     *          schedule with the fewest sad faces is kept
+     */
+    public Builder portfolioRuns(int runs) {
+      if (1 > runs) throw new IllegalArgumentException("runs must be one or greater");
+      this.portfolioRuns = runs;
+      return this;
+    }
+
+    /**
+     * @param budget
+     *          the wall-clock time after which no further portfolio runs are
+     *          waited for once at least one run has completed, or zero for no
+     *          limit
+     */
+    public Builder portfolioBudget(long budget, TimeUnit unit) {
+      if (0 > budget) throw new IllegalArgumentException("budget may not be negative");
+      this.portfolioBudgetMillis = unit.toMillis(budget);
+      return this;
+    }
+
+    /**
+     * @param moves
+     *          the number of local search moves to attempt on each schedule
+     *          once it has been constructed, or zero to skip the local search
+     */
+    public Builder improvementMoves(long moves) {
+      if (0 > moves) throw new IllegalArgumentException("moves may not be negative");
+      this.improvementMoves = moves;
+      return this;
+    }
+
+    /**
+     * @param temperature
+     *          the starting temperature of the local search, in weighted sad
+     *          faces; zero, the default, accepts only moves which do not make
+     *          the schedule worse
+     */
+    public Builder annealingTemperature(double temperature) {
+      if (!(0 <= temperature)) throw new IllegalArgumentException("temperature may not be negative");
+      this.annealingTemperature = temperature;
+      return this;
+    }
+
+    /**
+     * @param anchoredSearch
+     *          if <code>true</code>, only the candidate matches which include
+     *          the available team with the fewest available candidates are
+     *          considered for each slot; this is much faster for large tiers,
+     *          but the schedule produced usually has more sad faces
+     */
+    public Builder anchoredSearch(boolean anchoredSearch) {
+      this.anchoredSearch = anchoredSearch;
+      return this;
+    }
+
+    /**
+     * @param listener
+     *          notified of the progress of each schedule as it is made, or
+     *          <code>null</code> for none; the listener is not serialized
+     */
+    public Builder listener(SchedulerListener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * @param deadline
+     *          the wall-clock time within which each schedule should be made,
+     *          or zero for no limit; as the deadline approaches fewer
+     *          candidates are scored for each slot, down to taking the first
+     *          available candidate once it has passed, and local search is
+     *          stopped, so a complete schedule is always made
+     */
+    public Builder deadline(long deadline, TimeUnit unit) {
+      if (0 > deadline) throw new IllegalArgumentException("deadline may not be negative");
+      this.deadlineMillis = unit.toMillis(deadline);
+      return this;
+    }
+
+    /**
+     * @param seed
+     *          the seed of all of the random choices made while scheduling;
+     *          the same seed and configuration always produce the same
+     *          schedule, however many threads are used. If no seed is set a
+     *          new one is chosen for each schedule.
+     */
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * @param executionStrategy
+     *          decides the threads on which work is done; the strategy is not
+     *          serialized, so a deserialized configuration has the default
+     */
+    public Builder executionStrategy(ExecutionStrategy executionStrategy) {
+      if (null == executionStrategy) throw new IllegalArgumentException("executionStrategy may not be null");
+      this.executionStrategy = executionStrategy;
+      return this;
+    }
+
+    public Configuration build() {
+      return new Configuration(this);
+    }
+  }
+
+  /**
+   * 1
+   */
+  private static final long serialVersionUID = 1L;
+
+  static final Configuration DEFAULT_CONFIGURATION = new Configuration(false);
+
+  static final Configuration RANDOM_CONFIGURATION = new Configuration(true);
+
+  private final ImmutableMap<SadFaceFactor, Integer> factors;
+
+  private final transient ImmutableMap<SadFaceScorer.Factory, Integer> scorers;
+
+  /**
+   * The number of registered factors, which unlike the factors themselves is
+   * serialized, so that a deserialized configuration which has lost them can
+   * be recognized.
+   */
+  private final int scorerCount;
+
+  private final boolean randomizeMatchOrder;
+
+  private final boolean randomizeDayOrder;
+
+  private final boolean randomizeSlotOrder;
+
+  private final boolean parallelCandidates;
+
+  private final int portfolioRuns;
+
+  private final long portfolioBudgetMillis;
+
+  private final long improvementMoves;
+
+  private final double annealingTemperature;
+
+  private final boolean anchoredSearch;
+
+  private final transient SchedulerListener listener;
+
+  private final long deadlineMillis;
+
+  private final Long seed;
+
+  private final transient ExecutionStrategy executionStrategy;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return a builder initialized with the options of the given configuration
+   */
+  public static Builder builder(Configuration configuration) {
+    return new Builder(configuration);
+  }
+
+  public Configuration(boolean random) {
+    this(null, random, random, random);
+  }
+
+  public Configuration(Map<SadFaceFactor, Integer> factors, boolean random) {
+    this(factors, random, random, random);
+  }
+
+  public Configuration(Map<SadFaceFactor, Integer> factors, boolean randomizeMatchOrder, boolean randomizeDayOrder, boolean randomizeSlotOrder) {
+    this.factors = null == factors ? ImmutableMap.<SadFaceFactor, Integer> of() : ImmutableMap.copyOf(factors);
+    this.scorers = null;
+    this.scorerCount = 0;
+    this.randomizeMatchOrder = randomizeMatchOrder;
+    this.randomizeDayOrder = randomizeDayOrder;
+    this.randomizeSlotOrder = randomizeSlotOrder;
+    this.parallelCandidates = false;
+    this.portfolioRuns = 1;
+    this.portfolioBudgetMillis = 0;
+    this.improvementMoves = 0;
+    this.annealingTemperature = 0;
+    this.anchoredSearch = false;
+    this.listener = null;
+    this.deadlineMillis = 0;
+    this.seed = null;
+    this.executionStrategy = null;
+  }
+
+  private Configuration(Builder builder) {
+    this.factors = null == builder.factors ? ImmutableMap.<SadFaceFactor, Integer> of() : ImmutableMap.copyOf(builder.factors);
+    this.scorers = ImmutableMap.copyOf(builder.scorers);
+    this.scorerCount = this.scorers.size();
+    this.randomizeMatchOrder = builder.randomizeMatchOrder;
+    this.randomizeDayOrder = builder.randomizeDayOrder;
+    this.randomizeSlotOrder = builder.randomizeSlotOrder;
+    this.parallelCandidates = builder.parallelCandidates;
+    this.portfolioRuns = builder.portfolioRuns;
+    this.portfolioBudgetMillis = builder.portfolioBudgetMillis;
+    this.improvementMoves = builder.improvementMoves;
+    this.annealingTemperature = builder.annealingTemperature;
+    this.anchoredSearch = builder.anchoredSearch;
+    this.listener = builder.listener;
+    this.deadlineMillis = builder.deadlineMillis;
+    this.seed = builder.seed;
+    this.executionStrategy = builder.executionStrategy;
+  }
+
+  int getFactor(SadFaceFactor factor) {
+    Integer value = factors.get(factor);
+    return null == value ? factor.getDefaultValue() : value.intValue();
+  }
+
+  /**
+   * @return the weight of each registered factor, in the order they were
+   *         registered
+   */
+  ImmutableMap<SadFaceScorer.Factory, Integer> getScorers() {
+    return null == scorers ? ImmutableMap.<SadFaceScorer.Factory, Integer> of() : scorers;
+  }
+
+  /**
+   * @return <code>true</code> if factors were registered with this
+   *         configuration but were lost when it was serialized
+   */
+  boolean isMissingScorers() {
+    return null == scorers && 0 != scorerCount;
+  }
+
+  boolean isRandomizeMatchOrder() {
+    return randomizeMatchOrder;
+  }
+
+  boolean isRandomizeDayOrder() {
+    return randomizeDayOrder;
+  }
+
+  boolean isRandomizeSlotOrder() {
+    return randomizeSlotOrder;
+  }
+
+  boolean isParallelCandidates() {
+    return parallelCandidates;
+  }
+
+  int getPortfolioRuns() {
+    return portfolioRuns;
+  }
+
+  long getPortfolioBudgetMillis() {
+    return portfolioBudgetMillis;
+  }
+
+  long getImprovementMoves() {
+    return improvementMoves;
+  }
+
+  double getAnnealingTemperature() {
+    return annealingTemperature;
+  }
+
+  boolean isAnchoredSearch() {
+    return anchoredSearch;
+  }
+
+  SchedulerListener getListener() {
+    return listener;
+  }
+
+  long getDeadlineMillis() {
+    return deadlineMillis;
+  }
+
+  Long getSeed() {
+    return seed;
+  }
+
+  /**
+   * @return <code>true</code> if any random choices are made while scheduling
+   */
+  boolean isRandomized() {
+    return randomizeMatchOrder || randomizeDayOrder || randomizeSlotOrder || 1 < portfolioRuns || 0 < improvementMoves;
+  }
+
+  ExecutionStrategy getExecutionStrategy() {
+    return null == executionStrategy ? ExecutionStrategy.threadPool() : executionStrategy;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + factors.hashCode();
+    result = prime * result + getScorers().hashCode();
+    result = prime * result + (randomizeDayOrder ? 1231 : 1237);
+    result = prime * result + (randomizeMatchOrder ? 1231 : 1237);
+    result = prime * result + (randomizeSlotOrder ? 1231 : 1237);
+    result = prime * result + (parallelCandidates ? 1231 : 1237);
+    result = prime * result + portfolioRuns;
+    result = prime * result + (int) (portfolioBudgetMillis ^ (portfolioBudgetMillis >>> 32));
+    result = prime * result + (int) (improvementMoves ^ (improvementMoves >>> 32));
+    long temperatureBits = Double.doubleToLongBits(annealingTemperature);
+    result = prime * result + (int) (temperatureBits ^ (temperatureBits >>> 32));
+    result = prime * result + (anchoredSearch ? 1231 : 1237);
+    result = prime * result + (int) (deadlineMillis ^ (deadlineMillis >>> 32));
+    result = prime * result + (null == seed ? 0 : seed.hashCode());
+    return result;
+  }
+
+  /**
+   * Two configurations are equal if they make the same schedules: the
+   * listener and the execution strategy, which do not change the result, are
+   * ignored, as they are by the {@link ScheduleCache}.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    Configuration other = (Configuration) obj;
+    if (!factors.equals(other.factors)) return false;
+    if (!getScorers().equals(other.getScorers())) return false;
+    if (randomizeDayOrder != other.randomizeDayOrder) return false;
+    if (randomizeMatchOrder != other.randomizeMatchOrder) return false;
+    if (randomizeSlotOrder != other.randomizeSlotOrder) return false;
+    if (parallelCandidates != other.parallelCandidates) return false;
+    if (portfolioRuns != other.portfolioRuns) return false;
+    if (portfolioBudgetMillis != other.portfolioBudgetMillis) return false;
+    if (improvementMoves != other.improvementMoves) return false;
+    if (Double.doubleToLongBits(annealingTemperature) != Double.doubleToLongBits(other.annealingTemperature)) return false;
+    if (anchoredSearch != other.anchoredSearch) return false;
+    if (deadlineMillis != other.deadlineMillis) return false;
+    if (null == seed ? null != other.seed : !seed.equals(other.seed)) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "Configuration [factors=" + factors + ", scorers=" + getScorers() + ", randomizeMatchOrder=" + randomizeMatchOrder + ", randomizeDayOrder=" + randomizeDayOrder + ", randomizeSlotOrder=" + randomizeSlotOrder + ", parallelCandidates=" + parallelCandidates + ", portfolioRuns=" + portfolioRuns + ", portfolioBudgetMillis=" + portfolioBudgetMillis + ", improvementMoves=" + improvementMoves + ", annealingTemperature=" + annealingTemperature + ", anchoredSearch=" + anchoredSearch + ", listener=" + listener + ", deadlineMillis=" + deadlineMillis + ", seed=" + seed + ", executionStrategy=" + executionStrategy + "]";
+  }
+
 }
\ No newline at end of file
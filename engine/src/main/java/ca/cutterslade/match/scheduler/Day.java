@@ -1,74 +1,74 @@
-/*
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
- * 
- * http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
- */
-package ca.cutterslade.match.scheduler;
-
-import java.io.Serializable;
-import java.util.Set;
-
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.ImmutableSet;
-
-public final class Day implements Serializable {
-
-  /**
-   * 1
-   */
-  private static final long serialVersionUID = 1L;
-
-  private final String name;
-
-  static ImmutableSet<Day> forNames(Set<String> days) {
-    return ImmutableSet.copyOf(Collections2.transform(days, new Function<String, Day>() {
-
-      @Override
-      public Day apply(String name) {
-        return new Day(name);
-      }
-    }));
-  }
-
-  Day(String name) {
-    if (null == name) throw new IllegalArgumentException("name may not be null");
-    this.name = name;
-  }
-
-  public String getName() {
-    return name;
-  }
-
-  @Override
-  public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + name.hashCode();
-    return result;
-  }
-
-  @Override
-  public boolean equals(Object obj) {
-    if (this == obj) return true;
-    if (obj == null) return false;
-    if (getClass() != obj.getClass()) return false;
-    Day other = (Day) obj;
-    if (!name.equals(other.name)) return false;
-    return true;
-  }
-
-  @Override
-  public String toString() {
-    return "Day [name=" + name + "]";
-  }
-
-}
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
+
+public final class Day implements Serializable {
+
+  /**
+   * 1
+   */
+  private static final long serialVersionUID = 1L;
+
+  private final String name;
+
+  static ImmutableSet<Day> forNames(Set<String> days) {
+    return ImmutableSet.copyOf(Collections2.transform(days, new Function<String, Day>() {
+
+      @Override
+      public Day apply(String name) {
+        return new Day(name);
+      }
+    }));
+  }
+
+  Day(String name) {
+    if (null == name) throw new IllegalArgumentException("name may not be null");
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + name.hashCode();
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    Day other = (Day) obj;
+    if (!name.equals(other.name)) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "Day [name=" + name + "]";
+  }
+
+}
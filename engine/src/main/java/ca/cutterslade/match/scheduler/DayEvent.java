@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A flight recorder event recording the scheduling of one day. Only days
+ * taking longer than the threshold, ten milliseconds by default, are
+ * recorded.
+ *
+ * @author W.F. Hartford
+ */
+@Name("ca.cutterslade.match.scheduler.Day")
+@Label("Schedule Day")
+@Category("Match Scheduler")
+@Description("The scheduling of all of the slots of one day")
+@Threshold("10 ms")
+final class DayEvent extends Event {
+
+  @Label("Day")
+  String day;
+
+  @Label("Slots")
+  int slots;
+
+  @Label("Sad Faces")
+  @Description("The total sad faces of the matches chosen for the day")
+  long sadFaces;
+}
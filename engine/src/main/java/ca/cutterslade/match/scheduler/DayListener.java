@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Receives the matches of each day of a schedule made by
+ * {@link Scheduler#schedule(Configuration, java.util.Set, java.util.Set, java.util.Set, java.util.Set, java.util.Set, java.util.Set, int, DayListener)
+ * Scheduler.schedule} as soon as they are final. When a single pass is made
+ * without local search each day is final once it is made, so days are
+ * received in the order they are made while later days are still being
+ * scheduled; otherwise every day is received, in day order, once the whole
+ * schedule is complete. Every day is received exactly once, on the thread
+ * making the schedule, and the matches received are those of the completed
+ * {@link Scheduler}.
+ *
+ * @author W.F. Hartford
+ */
+public interface DayListener {
+
+  void dayScheduled(Day day, ImmutableSet<Match> matches);
+}
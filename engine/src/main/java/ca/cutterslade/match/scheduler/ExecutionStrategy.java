@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decides the threads on which the candidates of a schedule are scored and
+ * on which the runs of a portfolio are made. A strategy is set with
+ * {@link Configuration.Builder#executionStrategy(ExecutionStrategy)}; the
+ * default is {@link #threadPool()}.
+ *
+ * @author W.F. Hartford
+ */
+public abstract class ExecutionStrategy {
+
+  private static final ExecutionStrategy SEQUENTIAL = new ExecutionStrategy("sequential") {
+
+    @Override
+    Executor newExecutor() {
+      return new Executor(true);
+    }
+  };
+
+  private static final ExecutionStrategy THREAD_POOL = new ExecutionStrategy("threadPool") {
+
+    @Override
+    Executor newExecutor() {
+      return new Executor(false);
+    }
+  };
+
+  private static final ExecutionStrategy COMMON_POOL = new ExecutionStrategy("commonPool") {
+
+    @Override
+    Executor newExecutor() {
+      return new Executor(ForkJoinPool.commonPool(), ForkJoinPool.commonPool(), false);
+    }
+  };
+
+  private static final ExecutionStrategy VIRTUAL_THREADS = new ExecutionStrategy("virtualThreads") {
+
+    @Override
+    Executor newExecutor() {
+      return new Executor(newVirtualThreadPerTaskExecutor(), null, true);
+    }
+  };
+
+  /**
+   * Whether this runtime can create virtual threads: they are missing before
+   * Java 19, and before Java 21 creating one fails unless preview features
+   * are enabled.
+   */
+  private static final boolean VIRTUAL_THREADS_SUPPORTED = isVirtualThreadsAvailable();
+
+  private final String name;
+
+  ExecutionStrategy(String name) {
+    this.name = name;
+  }
+
+  /**
+   * All work is done on the calling thread, and no threads are created.
+   */
+  public static ExecutionStrategy sequential() {
+    return SEQUENTIAL;
+  }
+
+  /**
+   * Each schedule creates a thread pool and a fork/join pool with a thread per
+   * processor, and shuts them down when it is complete.
+   */
+  public static ExecutionStrategy threadPool() {
+    return THREAD_POOL;
+  }
+
+  /**
+   * Work is shared with the rest of the JVM on the
+   * {@link ForkJoinPool#commonPool() common fork/join pool}.
+   */
+  public static ExecutionStrategy commonPool() {
+    return COMMON_POOL;
+  }
+
+  /**
+   * Each task is run on a new virtual thread. Candidates scored in parallel
+   * are divided into a fixed number of tasks rather than split between
+   * fork/join tasks.
+   *
+   * @throws UnsupportedOperationException
+   *           if this runtime cannot create virtual threads
+   * @see #isVirtualThreadsSupported()
+   */
+  public static ExecutionStrategy virtualThreads() {
+    if (!VIRTUAL_THREADS_SUPPORTED) throw new UnsupportedOperationException("virtual threads are not supported by this runtime");
+    return VIRTUAL_THREADS;
+  }
+
+  /**
+   * @return <code>true</code> if this runtime can create virtual threads, so
+   *         that {@link #virtualThreads()} may be used
+   */
+  public static boolean isVirtualThreadsSupported() {
+    return VIRTUAL_THREADS_SUPPORTED;
+  }
+
+  /**
+   * Work is submitted to <code>service</code>, which is never shut down. If the
+   * service is a {@link ForkJoinPool}, candidates scored in parallel are split
+   * between fork/join tasks; otherwise they are divided into a fixed number of
+   * tasks.
+   */
+  public static ExecutionStrategy executorService(final ExecutorService service) {
+    if (null == service) throw new IllegalArgumentException("service may not be null");
+    return new ExecutionStrategy("executorService(" + service + ")") {
+
+      @Override
+      Executor newExecutor() {
+        return new Executor(service, service instanceof ForkJoinPool ? (ForkJoinPool) service : null, false);
+      }
+    };
+  }
+
+  /**
+   * @return an executor for a single schedule, which must be
+   *         {@link Executor#shutdown() shut down} once the schedule is complete
+   */
+  abstract Executor newExecutor();
+
+  private static boolean isVirtualThreadsAvailable() {
+    try {
+      newVirtualThreadPerTaskExecutor().shutdown();
+      return true;
+    }
+    catch (UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @throws UnsupportedOperationException
+   *           if this runtime cannot create virtual threads
+   */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+    catch (NoSuchMethodException e) {
+      throw new UnsupportedOperationException("virtual threads are not supported by this runtime", e);
+    }
+    catch (IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+    catch (InvocationTargetException e) {
+      throw new UnsupportedOperationException("virtual threads are not supported by this runtime", e.getCause());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
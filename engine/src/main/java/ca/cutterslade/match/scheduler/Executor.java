@@ -1,60 +1,167 @@
-package ca.cutterslade.match.scheduler;
-
-import java.util.Collection;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
-
-final class Executor {
-
-  private final ExecutorService service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
-
-    private final ThreadFactory f = Executors.defaultThreadFactory();
-
-    @Override
-    public Thread newThread(Runnable r) {
-      Thread thread = f.newThread(r);
-      thread.setDaemon(true);
-      return thread;
-    }
-  });
-
-  int sum(Collection<? extends Callable<Integer>> cs) throws InterruptedException {
-    List<Future<Integer>> fs = Lists.newArrayListWithCapacity(cs.size());
-    for (Callable<Integer> c : cs)
-      fs.add(service.submit(c));
-    int sum = 0;
-    for (Future<Integer> f : fs)
-      try {
-        sum += f.get().intValue();
-      }
-      catch (ExecutionException e) {
-        throw new AssertionError(e);
-      }
-    return sum;
-  }
-
-  <T> ImmutableSet<T> interleaf(Iterable<? extends Callable<Set<T>>> cs) throws InterruptedException {
-    List<Future<Set<T>>> fs = Lists.newArrayList();
-    for (Callable<Set<T>> c : cs)
-      fs.add(service.submit(c));
-    List<Set<T>> results = Lists.newArrayList();
-    for (Future<Set<T>> f : fs)
-      try {
-        results.add(f.get());
-      }
-      catch (ExecutionException e) {
-        throw new AssertionError(e);
-      }
-    return ImmutableSet.copyOf(new AlternatingIterable<T>(results));
-  }
-
-}
+package ca.cutterslade.match.scheduler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.collect.Lists;
+
+final class Executor {
+
+  static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory() {
+
+    private final ThreadFactory f = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = f.newThread(r);
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+
+  private final ExecutorService service;
+
+  private final ForkJoinPool forkJoinPool;
+
+  private final boolean owned;
+
+  /**
+   * @param sequential
+   *          if <code>true</code>, all work is done on the calling thread and
+   *          no threads are created
+   */
+  Executor(boolean sequential) {
+    this(sequential ? null : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), DAEMON_THREAD_FACTORY), sequential ? null : new ForkJoinPool(), true);
+  }
+
+  /**
+   * @param service
+   *          the service to which tasks are submitted, or <code>null</code> to
+   *          do all work on the calling thread
+   * @param forkJoinPool
+   *          the pool in which fork/join tasks are invoked, or
+   *          <code>null</code> if they cannot be
+   * @param owned
+   *          if <code>true</code>, the service and pool are shut down by
+   *          {@link #shutdown()}
+   */
+  Executor(ExecutorService service, ForkJoinPool forkJoinPool, boolean owned) {
+    if (null == service && null != forkJoinPool) throw new IllegalArgumentException("a sequential executor may not have a fork/join pool");
+    this.service = service;
+    this.forkJoinPool = forkJoinPool;
+    this.owned = owned;
+  }
+
+  boolean isSequential() {
+    return null == service;
+  }
+
+  /**
+   * @return <code>true</code> if fork/join tasks may be
+   *         {@link #invoke(ForkJoinTask) invoked}
+   */
+  boolean isForkJoin() {
+    return null != forkJoinPool;
+  }
+
+  int sum(Collection<? extends Callable<Integer>> cs) throws InterruptedException {
+    if (isSequential()) {
+      int sum = 0;
+      for (Callable<Integer> c : cs)
+        sum += call(c).intValue();
+      return sum;
+    }
+    List<Future<Integer>> fs = Lists.newArrayListWithCapacity(cs.size());
+    for (Callable<Integer> c : cs)
+      fs.add(service.submit(c));
+    int sum = 0;
+    try {
+      for (Future<Integer> f : fs)
+        sum += f.get().intValue();
+    }
+    catch (ExecutionException e) {
+      throw new AssertionError(e);
+    }
+    catch (InterruptedException e) {
+      for (Future<Integer> f : fs)
+        f.cancel(true);
+      throw e;
+    }
+    return sum;
+  }
+
+  <T> T invoke(ForkJoinTask<T> task) {
+    if (!isForkJoin()) throw new IllegalStateException("fork/join tasks cannot be invoked by this executor");
+    return forkJoinPool.invoke(task);
+  }
+
+  /**
+   * Run the tasks and wait for all of them to complete.
+   */
+  void invokeAll(Collection<? extends Callable<?>> cs) throws InterruptedException {
+    if (isSequential()) {
+      for (Callable<?> c : cs)
+        call(c);
+      return;
+    }
+    List<Future<?>> fs = Lists.newArrayListWithCapacity(cs.size());
+    for (Callable<?> c : cs)
+      fs.add(service.submit(c));
+    try {
+      for (Future<?> f : fs)
+        f.get();
+    }
+    catch (ExecutionException e) {
+      throw new AssertionError(e);
+    }
+    catch (InterruptedException e) {
+      for (Future<?> f : fs)
+        f.cancel(true);
+      throw e;
+    }
+  }
+
+  /**
+   * @return an executor of the runnables of a single long-running task each,
+   *         such as the runs of a portfolio; a sequential executor runs them
+   *         on the calling thread
+   */
+  java.util.concurrent.Executor getTaskExecutor() {
+    if (!isSequential()) return service;
+    return new java.util.concurrent.Executor() {
+
+      @Override
+      public void execute(Runnable command) {
+        command.run();
+      }
+    };
+  }
+
+  /**
+   * Stop all work, interrupting any tasks in progress, if the executor owns
+   * its threads; no more work may be given to the executor.
+   */
+  void shutdown() {
+    if (isSequential() || !owned) return;
+    service.shutdownNow();
+    if (null != forkJoinPool) forkJoinPool.shutdownNow();
+  }
+
+  private static <T> T call(Callable<T> c) {
+    try {
+      return c.call();
+    }
+    catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+}
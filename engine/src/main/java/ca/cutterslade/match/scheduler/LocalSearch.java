@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.SplittableRandom;
+
+/**
+ * Improves a complete schedule by simulated annealing. Each move either swaps
+ * the slots of two matches on the same day, or swaps one team between two
+ * matches of the same tier on the same day; both keep every team playing once
+ * per day. A move is evaluated by removing the affected matches from a
+ * {@link ScoringState}, adding the moved matches and reading the change in the
+ * state's weighted totals, so its cost depends on the number of days rather
+ * than on the number of matches. Moves which do not increase the total are
+ * always kept; moves which do are kept with a probability that falls as the
+ * temperature is lowered linearly to zero, so a starting temperature of zero is
+ * plain hill climbing.
+ *
+ * @author W.F. Hartford
+ */
+final class LocalSearch {
+
+  private final CompiledLeague league;
+
+  private final int[] weights;
+
+  private final SplittableRandom random;
+
+  private final double temperature;
+
+  private final int[] days;
+
+  private boolean stopped;
+
+  /**
+   * @param weights
+   *          the weight of each factor, indexed by factor ordinal
+   * @param temperature
+   *          the starting temperature, in weighted sad faces
+   */
+  LocalSearch(CompiledLeague league, int[] weights, SplittableRandom random, double temperature) {
+    this(league, weights, random, temperature, allDays(league));
+  }
+
+  /**
+   * @param days
+   *          the ids of the days whose matches may be moved
+   */
+  LocalSearch(CompiledLeague league, int[] weights, SplittableRandom random, double temperature, int[] days) {
+    if (null == league) throw new IllegalArgumentException("league may not be null");
+    if (null == weights) throw new IllegalArgumentException("weights may not be null");
+    if (null == random) throw new IllegalArgumentException("random may not be null");
+    if (0 > temperature) throw new IllegalArgumentException("temperature may not be negative");
+    if (null == days || 0 == days.length) throw new IllegalArgumentException("days may not be empty");
+    this.league = league;
+    this.weights = weights;
+    this.random = random;
+    this.temperature = temperature;
+    this.days = days;
+  }
+
+  private static int[] allDays(CompiledLeague league) {
+    if (null == league) throw new IllegalArgumentException("league may not be null");
+    int[] days = new int[league.getDayCount()];
+    for (int d = 0; d < days.length; d++)
+      days[d] = d;
+    return days;
+  }
+
+  /**
+   * Make up to <code>moves</code> moves, modifying the schedule in place.
+   *
+   * @param slotMatches
+   *          the teams of the match in each slot, indexed by slot id
+   * @param state
+   *          a state holding exactly the matches of <code>slotMatches</code>;
+   *          it is kept up to date as moves are made
+   * @return the change in the weighted total sad faces of the schedule
+   */
+  long improve(int[][] slotMatches, ScoringState state, long moves) throws InterruptedException {
+    return improve(slotMatches, state, moves, MatchMaker.NO_DEADLINE);
+  }
+
+  /**
+   * Make up to <code>moves</code> moves, stopping early if the
+   * {@link System#nanoTime()} deadline passes.
+   *
+   * @see #improve(int[][], ScoringState, long)
+   * @see #isStopped()
+   */
+  long improve(int[][] slotMatches, ScoringState state, long moves, long deadline) throws InterruptedException {
+    stopped = false;
+    long change = 0;
+    for (long move = 0; move < moves; move++) {
+      if (0 == (move & 0xffff) && Thread.interrupted()) throw new InterruptedException();
+      if (0 == (move & 0x3ff) && MatchMaker.NO_DEADLINE != deadline && System.nanoTime() >= deadline) {
+        stopped = true;
+        break;
+      }
+      int[] daySlots = league.getDaySlots(days[random.nextInt(days.length)]);
+      if (2 > daySlots.length) continue;
+      int a = daySlots[random.nextInt(daySlots.length)];
+      int b = daySlots[random.nextInt(daySlots.length)];
+      int[] matchA = slotMatches[a];
+      int[] matchB = slotMatches[b];
+      if (a == b || null == matchA || null == matchB) continue;
+      final int[] newA;
+      final int[] newB;
+      if (random.nextBoolean()) {
+        newA = matchB;
+        newB = matchA;
+      }
+      else {
+        if (league.getTeamTier(matchA[0]) != league.getTeamTier(matchB[0])) continue;
+        int i = random.nextInt(matchA.length);
+        int j = random.nextInt(matchB.length);
+        newA = matchA.clone();
+        newB = matchB.clone();
+        newA[i] = matchB[j];
+        newB[j] = matchA[i];
+      }
+      long before = state.getTotalSadFaces(weights);
+      state.remove(a, matchA);
+      state.remove(b, matchB);
+      state.add(a, newA);
+      state.add(b, newB);
+      long delta = state.getTotalSadFaces(weights) - before;
+      if (accept(delta, move, moves)) {
+        slotMatches[a] = newA;
+        slotMatches[b] = newB;
+        change += delta;
+      }
+      else {
+        state.remove(a, newA);
+        state.remove(b, newB);
+        state.add(a, matchA);
+        state.add(b, matchB);
+      }
+    }
+    return change;
+  }
+
+  /**
+   * @return <code>true</code> if the last improvement was stopped at its
+   *         deadline before every move had been made
+   */
+  boolean isStopped() {
+    return stopped;
+  }
+
+  private boolean accept(long delta, long move, long moves) {
+    if (0 >= delta) return true;
+    double t = temperature * (moves - move) / moves;
+    return 0 < t && random.nextDouble() < Math.exp(-delta / t);
+  }
+}
@@ -1,109 +1,192 @@
-/*
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
- * 
- * http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
- */
-package ca.cutterslade.match.scheduler;
-
-import java.io.PrintWriter;
-import java.io.StringWriter;
-
-import org.apache.commons.cli.CommandLine;
-import org.apache.commons.cli.CommandLineParser;
-import org.apache.commons.cli.HelpFormatter;
-import org.apache.commons.cli.OptionBuilder;
-import org.apache.commons.cli.Options;
-import org.apache.commons.cli.ParseException;
-import org.apache.commons.cli.PosixParser;
-
-import com.google.common.collect.ImmutableMap;
-
-/**
- * @author W.F. Hartford
- * 
- */
-public class Main {
-
-  private static final Options OPTIONS;
-  static {
-    final Options o = new Options();
-    o.addOption(OptionBuilder.withLongOpt("teams").hasArg().withArgName("count").withDescription("The total number of teams").isRequired().create('t'));
-    o.addOption(OptionBuilder.withLongOpt("tiers").hasArg().withArgName("count").withDescription("The number of tiers that the teams are divided into").isRequired().create('r'));
-    o.addOption(OptionBuilder.withLongOpt("gyms").hasArg().withArgName("count").withDescription("The number of gyms in which matches are played").isRequired().create('g'));
-    o.addOption(OptionBuilder.withLongOpt("courts").hasArg().withArgName("count").withDescription("The number of courts in each gym").isRequired().create('c'));
-    o.addOption(OptionBuilder.withLongOpt("times").hasArg().withArgName("count").withDescription("The number of time slots per day").isRequired().create('m'));
-    o.addOption(OptionBuilder.withLongOpt("days").hasArg().withArgName("count").withDescription("The number of play days in the season").isRequired().create('d'));
-    o.addOption(OptionBuilder.withLongOpt("size").hasArg().withArgName("count").withDescription("The number of teams in each match").isRequired().create('z'));
-    o.addOption(OptionBuilder.withLongOpt("randomMatches").withDescription("Randomize the order of teams within each match").create());
-    o.addOption(OptionBuilder.withLongOpt("randomSlots").withDescription("Randomize the order of slots within each day").create());
-    o.addOption(OptionBuilder.withLongOpt("randomDays").withDescription("Randomize the order of days within each season").create());
-    o.addOption(OptionBuilder.withLongOpt("random").withDescription("Randomize all of the above").create());
-    OPTIONS = o;
-  }
-
-  public static void main(final String[] args) throws InterruptedException {
-    final CommandLineParser parser = new PosixParser();
-    try {
-      final CommandLine line = parser.parse(OPTIONS, args);
-      final int teams = Integer.parseInt(line.getOptionValue('t'));
-      final int tiers = Integer.parseInt(line.getOptionValue('r'));
-      final int gyms = Integer.parseInt(line.getOptionValue('g'));
-      final int courts = Integer.parseInt(line.getOptionValue('c'));
-      final int times = Integer.parseInt(line.getOptionValue('m'));
-      final int days = Integer.parseInt(line.getOptionValue('d'));
-      final int size = Integer.parseInt(line.getOptionValue('z'));
-      final Configuration config;
-      if (line.hasOption("random")) config = Configuration.RANDOM_CONFIGURATION;
-      else config = new Configuration(ImmutableMap.<SadFaceFactor, Integer> of(), line.hasOption("randomMatches"), line.hasOption("randomSlots"), line.hasOption("randomDays"));
-      final Scheduler s = new Scheduler(config, teams, tiers, gyms, courts, times, days, size);
-      System.out.println(summary(s));
-    }
-    catch (final ParseException e) {
-      final HelpFormatter f = new HelpFormatter();
-      final PrintWriter pw = new PrintWriter(System.err);
-      f.printHelp(pw, 80, "match-scheduler", null, OPTIONS, 2, 2, null, true);
-      pw.println("For example: match-scheduler -t 48 -r 3 -d 12 -m 2 -g 3 -c 2 -z 4 --randomMatches --randomSlots");
-      pw.close();
-    }
-  }
-
-  private static String summary(final Scheduler scheduler) {
-    final StringWriter w = new StringWriter();
-    final PrintWriter p = new PrintWriter(w);
-    final String columnFormat = " %15s";
-    p.printf(columnFormat, "Day");
-    p.printf(columnFormat, "Time");
-    for (final Court c : scheduler.getCourts()) {
-      p.printf(columnFormat, c.getGym().getName() + '-' + c.getName());
-    }
-    p.println();
-    for (final Day d : scheduler.getDays())
-      for (final Time t : scheduler.getTimes()) {
-        p.printf(columnFormat, d.getName());
-        p.printf(columnFormat, t.getName());
-        for (final Court c : scheduler.getCourts()) {
-          final Match m = scheduler.getMatch(d, t, c);
-          p.printf(columnFormat, teamsString(m));
-        }
-        p.println();
-      }
-    p.close();
-    return w.toString();
-  }
-
-  private static String teamsString(final Match m) {
-    final StringBuilder b = new StringBuilder();
-    for (final Team t : m.getTeams())
-      b.append(t.getName()).append(',');
-    b.setLength(b.length() - 1);
-    return b.toString();
-  }
-}
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * @author W.F. Hartford
+ * 
+ */
+public class Main {
+
+  private static final long DEFAULT_CACHE_MEGABYTES = 256;
+
+  private static final Options OPTIONS;
+  static {
+    final Options o = new Options();
+    o.addOption(OptionBuilder.withLongOpt("teams").hasArg().withArgName("count").withDescription("The total number of teams").isRequired().create('t'));
+    o.addOption(OptionBuilder.withLongOpt("tiers").hasArg().withArgName("count").withDescription("The number of tiers that the teams are divided into").isRequired().create('r'));
+    o.addOption(OptionBuilder.withLongOpt("gyms").hasArg().withArgName("count").withDescription("The number of gyms in which matches are played").isRequired().create('g'));
+    o.addOption(OptionBuilder.withLongOpt("courts").hasArg().withArgName("count").withDescription("The number of courts in each gym").isRequired().create('c'));
+    o.addOption(OptionBuilder.withLongOpt("times").hasArg().withArgName("count").withDescription("The number of time slots per day").isRequired().create('m'));
+    o.addOption(OptionBuilder.withLongOpt("days").hasArg().withArgName("count").withDescription("The number of play days in the season").isRequired().create('d'));
+    o.addOption(OptionBuilder.withLongOpt("size").hasArg().withArgName("count").withDescription("The number of teams in each match").isRequired().create('z'));
+    o.addOption(OptionBuilder.withLongOpt("randomMatches").withDescription("Randomize the order of teams within each match").create());
+    o.addOption(OptionBuilder.withLongOpt("randomSlots").withDescription("Randomize the order of slots within each day").create());
+    o.addOption(OptionBuilder.withLongOpt("randomDays").withDescription("Randomize the order of days within each season").create());
+    o.addOption(OptionBuilder.withLongOpt("random").withDescription("Randomize all of the above").create());
+    o.addOption(OptionBuilder.withLongOpt("parallelCandidates").withDescription("Score the candidate matches for each slot in parallel").create());
+    o.addOption(OptionBuilder.withLongOpt("anchored").withDescription("Only consider the candidate matches of the most constrained available team for each slot").create());
+    o.addOption(OptionBuilder.withLongOpt("strategy").hasArg().withArgName("name").withDescription("Where work is done: sequential, threadPool, commonPool or virtualThreads").create());
+    o.addOption(OptionBuilder.withLongOpt("cache").hasArg().withArgName("directory").withDescription("The directory in which to keep schedules, to reuse them when the same league is scheduled again").create());
+    o.addOption(OptionBuilder.withLongOpt("cacheSize").hasArg().withArgName("megabytes").withDescription("The size the cache may reach before the least recently used schedules are deleted").create());
+    o.addOption(OptionBuilder.withLongOpt("write").hasArg().withArgName("file").withDescription("Also write the schedule to a file in the compact binary format").create());
+    o.addOption(OptionBuilder.withLongOpt("metrics").withDescription("Print a summary of where the scheduling time was spent").create());
+    o.addOption(OptionBuilder.withLongOpt("runs").hasArg().withArgName("count").withDescription("The number of randomized runs to make, keeping the best schedule").create());
+    o.addOption(OptionBuilder.withLongOpt("budget").hasArg().withArgName("seconds").withDescription("The time after which no further runs are waited for").create());
+    o.addOption(OptionBuilder.withLongOpt("improve").hasArg().withArgName("moves").withDescription("The number of local search moves to attempt on each schedule").create());
+    o.addOption(OptionBuilder.withLongOpt("temperature").hasArg().withArgName("sadFaces").withDescription("The starting temperature of the local search").create());
+    o.addOption(OptionBuilder.withLongOpt("seed").hasArg().withArgName("seed").withDescription("The seed of the random choices, to reproduce an earlier schedule").create());
+    o.addOption(OptionBuilder.withLongOpt("deadline").hasArg().withArgName("millis").withDescription("The time within which the schedule must be made, searching less as it approaches").create());
+    OPTIONS = o;
+  }
+
+  public static void main(final String[] args) throws InterruptedException, IOException {
+    try {
+      final CommandLine line = parse(args);
+      final Scheduler scheduler = schedule(line, configuration(line, ExecutionStrategy.threadPool()));
+      if (line.hasOption("write")) ScheduleFile.write(scheduler, new File(line.getOptionValue("write")));
+      System.out.print(output(scheduler));
+    }
+    catch (final ParseException e) {
+      final HelpFormatter f = new HelpFormatter();
+      final PrintWriter pw = new PrintWriter(System.err);
+      f.printHelp(pw, 80, "match-scheduler", null, OPTIONS, 2, 2, null, true);
+      pw.println("For example: match-scheduler -t 48 -r 3 -d 12 -m 2 -g 3 -c 2 -z 4 --randomMatches --randomSlots");
+      pw.close();
+    }
+  }
+
+  static CommandLine parse(final String[] args) throws ParseException {
+    return new PosixParser().parse(OPTIONS, args);
+  }
+
+  /**
+   * @param strategy
+   *          the execution strategy to use if the command line does not choose
+   *          one
+   */
+  static Configuration configuration(final CommandLine line, final ExecutionStrategy strategy) throws ParseException {
+    final Configuration.Builder builder = Configuration.builder();
+    if (line.hasOption("random")) builder.random(true);
+    else builder.randomizeMatchOrder(line.hasOption("randomMatches")).randomizeSlotOrder(line.hasOption("randomSlots")).randomizeDayOrder(line.hasOption("randomDays"));
+    builder.parallelCandidates(line.hasOption("parallelCandidates"));
+    builder.anchoredSearch(line.hasOption("anchored"));
+    builder.executionStrategy(line.hasOption("strategy") ? executionStrategy(line.getOptionValue("strategy")) : strategy);
+    if (line.hasOption("runs")) builder.portfolioRuns(Integer.parseInt(line.getOptionValue("runs")));
+    if (line.hasOption("budget")) builder.portfolioBudget(Long.parseLong(line.getOptionValue("budget")), TimeUnit.SECONDS);
+    if (line.hasOption("improve")) builder.improvementMoves(Long.parseLong(line.getOptionValue("improve")));
+    if (line.hasOption("temperature")) builder.annealingTemperature(Double.parseDouble(line.getOptionValue("temperature")));
+    if (line.hasOption("seed")) builder.seed(Long.parseLong(line.getOptionValue("seed")));
+    if (line.hasOption("deadline")) builder.deadline(Long.parseLong(line.getOptionValue("deadline")), TimeUnit.MILLISECONDS);
+    builder.listener(line.hasOption("metrics") ? new SummaryListener() : null);
+    return builder.build();
+  }
+
+  static Scheduler schedule(final CommandLine line, final Configuration config) throws InterruptedException, IOException {
+    final int teams = Integer.parseInt(line.getOptionValue('t'));
+    final int tiers = Integer.parseInt(line.getOptionValue('r'));
+    final int gyms = Integer.parseInt(line.getOptionValue('g'));
+    final int courts = Integer.parseInt(line.getOptionValue('c'));
+    final int times = Integer.parseInt(line.getOptionValue('m'));
+    final int days = Integer.parseInt(line.getOptionValue('d'));
+    final int size = Integer.parseInt(line.getOptionValue('z'));
+    if (!line.hasOption("cache")) return new Scheduler(config, teams, tiers, gyms, courts, times, days, size);
+    final long megabytes = line.hasOption("cacheSize") ? Long.parseLong(line.getOptionValue("cacheSize")) : DEFAULT_CACHE_MEGABYTES;
+    return new ScheduleCache(new File(line.getOptionValue("cache")), megabytes << 20).getScheduler(config, teams, tiers, gyms, courts, times, days, size);
+  }
+
+  /**
+   * @return the schedule, followed by the seed, the run summary and the
+   *         metrics when they apply
+   */
+  static String output(final Scheduler s) {
+    final Configuration config = s.getConfig();
+    final StringWriter w = new StringWriter();
+    final PrintWriter p = new PrintWriter(w);
+    p.println(summary(s));
+    if (config.isRandomized()) p.printf("Seed: %d%n", s.getSeed());
+    if (1 < config.getPortfolioRuns() || 0 < config.getImprovementMoves() || 0 < config.getDeadlineMillis()) p.println(runSummary(s));
+    if (config.getListener() instanceof SummaryListener) p.print(((SummaryListener) config.getListener()).getSummary());
+    p.close();
+    return w.toString();
+  }
+
+  private static ExecutionStrategy executionStrategy(final String name) throws ParseException {
+    if ("sequential".equals(name)) return ExecutionStrategy.sequential();
+    if ("threadPool".equals(name)) return ExecutionStrategy.threadPool();
+    if ("commonPool".equals(name)) return ExecutionStrategy.commonPool();
+    if ("virtualThreads".equals(name)) {
+      if (!ExecutionStrategy.isVirtualThreadsSupported()) throw new ParseException("virtualThreads is not supported by this runtime");
+      return ExecutionStrategy.virtualThreads();
+    }
+    throw new ParseException("Unknown strategy: " + name);
+  }
+
+  private static String summary(final Scheduler scheduler) {
+    final StringWriter w = new StringWriter();
+    final PrintWriter p = new PrintWriter(w);
+    final String columnFormat = " %15s";
+    p.printf(columnFormat, "Day");
+    p.printf(columnFormat, "Time");
+    for (final Court c : scheduler.getCourts()) {
+      p.printf(columnFormat, c.getGym().getName() + '-' + c.getName());
+    }
+    p.println();
+    for (final Day d : scheduler.getDays())
+      for (final Time t : scheduler.getTimes()) {
+        p.printf(columnFormat, d.getName());
+        p.printf(columnFormat, t.getName());
+        for (final Court c : scheduler.getCourts()) {
+          final Match m = scheduler.getMatch(d, t, c);
+          p.printf(columnFormat, teamsString(m));
+        }
+        p.println();
+      }
+    p.close();
+    return w.toString();
+  }
+
+  private static String runSummary(final Scheduler scheduler) {
+    final StringWriter w = new StringWriter();
+    final PrintWriter p = new PrintWriter(w);
+    int run = 0;
+    for (final Long sadFaces : scheduler.getRunSadFaces())
+      p.printf("Run %d: %d sad faces%n", ++run, sadFaces);
+    p.printf("Best: %d sad faces%n", scheduler.getSadFaces());
+    if (scheduler.isDegraded()) p.printf("Degraded: the deadline was reached%n");
+    p.close();
+    return w.toString();
+  }
+
+  private static String teamsString(final Match m) {
+    final StringBuilder b = new StringBuilder();
+    for (final Team t : m.getTeams())
+      b.append(t.getName()).append(',');
+    b.setLength(b.length() - 1);
+    return b.toString();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The matches of a schedule by day, time and court, held in a single array
+ * with an element for each slot, ordered by day, then time, then court, so that
+ * the matches of a day, and of a time on that day, are consecutive. A match is
+ * found from the ordinals of its day, time and court, and the sets of matches
+ * of each day and of each time of a day are built with the index, so no
+ * lookup allocates.
+ *
+ * @author W.F. Hartford
+ */
+final class MatchIndex implements Serializable {
+
+  /**
+   * 1
+   */
+  private static final long serialVersionUID = 1L;
+
+  private final ImmutableMap<Day, Integer> dayIds;
+
+  private final ImmutableMap<Time, Integer> timeIds;
+
+  private final ImmutableMap<Court, Integer> courtIds;
+
+  private final Match[] matches;
+
+  private final ImmutableList<ImmutableSet<Match>> dayMatches;
+
+  private final ImmutableList<ImmutableSet<Match>> timeMatches;
+
+  MatchIndex(Set<Day> days, Set<Time> times, Set<Court> courts, Iterable<Match> matches) {
+    if (null == matches) throw new IllegalArgumentException("matches may not be null");
+    this.dayIds = ids(days);
+    this.timeIds = ids(times);
+    this.courtIds = ids(courts);
+    this.matches = new Match[days.size() * times.size() * courts.size()];
+    for (Match m : matches) {
+      int i = index(m.getDay(), m.getTime(), m.getCourt());
+      if (0 > i) throw new IllegalArgumentException("match not in a slot of the schedule: " + m);
+      if (null != this.matches[i]) throw new IllegalArgumentException("more than one match in slot " + m.getSlot());
+      this.matches[i] = m;
+    }
+    int perDay = timeIds.size() * courtIds.size();
+    ImmutableList.Builder<ImmutableSet<Match>> byDay = ImmutableList.builder();
+    for (int d = 0; d < dayIds.size(); d++)
+      byDay.add(getMatches(d * perDay, perDay));
+    this.dayMatches = byDay.build();
+    ImmutableList.Builder<ImmutableSet<Match>> byTime = ImmutableList.builder();
+    for (int dt = 0; dt < dayIds.size() * timeIds.size(); dt++)
+      byTime.add(getMatches(dt * courtIds.size(), courtIds.size()));
+    this.timeMatches = byTime.build();
+  }
+
+  private static <T> ImmutableMap<T, Integer> ids(Set<T> entities) {
+    if (null == entities) throw new IllegalArgumentException("entities may not be null");
+    ImmutableMap.Builder<T, Integer> b = ImmutableMap.builder();
+    int id = 0;
+    for (T entity : entities)
+      b.put(entity, id++);
+    return b.build();
+  }
+
+  /**
+   * @return the index of the slot's element, or <code>-1</code> if the slot is
+   *         not of the schedule
+   */
+  private int index(Day day, Time time, Court court) {
+    Integer d = dayIds.get(day);
+    Integer t = timeIds.get(time);
+    Integer c = courtIds.get(court);
+    if (null == d || null == t || null == c) return -1;
+    return (d * timeIds.size() + t) * courtIds.size() + c;
+  }
+
+  /**
+   * @return the match in the slot, or <code>null</code> if there is none
+   */
+  Match getMatch(Day day, Time time, Court court) {
+    int i = index(day, time, court);
+    return 0 > i ? null : matches[i];
+  }
+
+  /**
+   * @return the matches of the day, in order of time then court; empty if the
+   *         day is not of the schedule
+   */
+  ImmutableSet<Match> getMatches(Day day) {
+    Integer d = dayIds.get(day);
+    return null == d ? ImmutableSet.<Match> of() : dayMatches.get(d);
+  }
+
+  /**
+   * @return the matches of the day at the time, in order of court; empty if
+   *         either is not of the schedule
+   */
+  ImmutableSet<Match> getMatches(Day day, Time time) {
+    Integer d = dayIds.get(day);
+    Integer t = timeIds.get(time);
+    if (null == d || null == t) return ImmutableSet.of();
+    return timeMatches.get(d * timeIds.size() + t);
+  }
+
+  private ImmutableSet<Match> getMatches(int from, int count) {
+    ImmutableSet.Builder<Match> b = ImmutableSet.builder();
+    for (int i = from; i < from + count; i++)
+      if (null != matches[i]) b.add(matches[i]);
+    return b.build();
+  }
+}
@@ -1,220 +1,697 @@
-/*
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
- * 
- * http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
- */
-package ca.cutterslade.match.scheduler;
-
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.Callable;
-
-import com.google.common.base.Function;
-import com.google.common.base.Predicates;
-import com.google.common.collect.ImmutableMultimap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
-
-/**
- * @author W.F. Hartford
- * 
- */
-final class MatchMaker {
-
-  private static final class PossibleMatchesCallable implements Callable<Set<ImmutableSet<Team>>> {
-
-    private static final class ConstructorFunction implements Function<Collection<Team>, Callable<Set<ImmutableSet<Team>>>> {
-
-      private final int teamsPerMatch;
-
-      public ConstructorFunction(int teamsPerMatch) {
-        this.teamsPerMatch = teamsPerMatch;
-      }
-
-      @Override
-      public Callable<Set<ImmutableSet<Team>>> apply(Collection<Team> from) {
-        return new PossibleMatchesCallable(from, teamsPerMatch);
-      }
-    }
-
-    static Iterable<Callable<Set<ImmutableSet<Team>>>> forTiers(Iterable<Collection<Team>> tiers, int teamsPerMatch) {
-      return Iterables.transform(tiers, new ConstructorFunction(teamsPerMatch));
-    }
-
-    private final Collection<Team> tier;
-
-    private final int teamsPerMatch;
-
-    PossibleMatchesCallable(Collection<Team> tier, int teamsPerMatch) {
-      this.tier = tier;
-      this.teamsPerMatch = teamsPerMatch;
-    }
-
-    @Override
-    public Set<ImmutableSet<Team>> call() throws Exception {
-      Set<ImmutableSet<Team>> matches = Sets.newLinkedHashSet();
-      build(Sets.<Team> newLinkedHashSet(), matches);
-      return matches;
-    }
-
-    private void build(Set<Team> match, Set<ImmutableSet<Team>> matches) {
-      Iterable<Team> options = match.isEmpty() ? this.tier : Iterables.filter(this.tier, Predicates.not(Predicates.in(match)));
-      for (Team t : options) {
-        Set<Team> thisMatch = Sets.newLinkedHashSet(match);
-        thisMatch.add(t);
-        if (thisMatch.size() == teamsPerMatch) matches.add(ImmutableSet.copyOf(thisMatch));
-        else build(thisMatch, matches);
-      }
-    }
-  }
-
-  private static class SadFacesCallable implements Callable<Integer> {
-
-    private final SadFaceFactor factor;
-
-    private final int weight;
-
-    private final Slot slot;
-
-    private final ImmutableSet<Team> match;
-
-    private final Iterable<Match> existingMatches;
-
-    private final int limit;
-
-    SadFacesCallable(SadFaceFactor factor, int weight, Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      this.factor = factor;
-      this.weight = weight;
-      this.slot = slot;
-      this.match = match;
-      this.existingMatches = existingMatches;
-      this.limit = limit;
-    }
-
-    @Override
-    public Integer call() throws Exception {
-      return weight * factor.getSadFaces(slot, match, existingMatches, limit);
-    }
-
-  }
-
-  private static final Random RANDOM = new Random();
-
-  private final Executor executor = new Executor();
-
-  private final Configuration configuration;
-
-  private final ImmutableSet<Team> teams;
-
-  private final ImmutableMultimap<Tier, Team> tiers;
-
-  private final ImmutableMultimap<Day, Slot> days;
-
-  private final int teamSize;
-
-  MatchMaker(Configuration configuration, ImmutableSet<Slot> slots, ImmutableSet<Team> teams, int teamSize) {
-    if (null == configuration) throw new IllegalArgumentException("configuration may not be null");
-    if (null == slots) throw new IllegalArgumentException("slots may not be null");
-    if (null == teams) throw new IllegalArgumentException("teams may not be null");
-    if (2 > teamSize) throw new IllegalArgumentException("size must be two or greater");
-    this.configuration = configuration;
-    this.teams = teams;
-    ImmutableMultimap.Builder<Tier, Team> tiers = ImmutableMultimap.builder();
-    for (Team t : teams)
-      tiers.put(t.getTier(), t);
-    this.tiers = tiers.build();
-
-    ImmutableMultimap.Builder<Day, Slot> days = ImmutableMultimap.builder();
-    for (Slot s : slots)
-      days.put(s.getDay(), s);
-    this.days = days.build();
-    this.teamSize = teamSize;
-  }
-
-  ImmutableSet<Match> getMatches() throws InterruptedException {
-    ImmutableSet<ImmutableSet<Team>> matches = executor.interleaf(PossibleMatchesCallable.forTiers(this.tiers.asMap().values(), teamSize));
-    ImmutableSet.Builder<Match> b = ImmutableSet.builder();
-    final Collection<Day> days;
-    if (configuration.isRandomizeDayOrder()) {
-      List<Day> d = Lists.newArrayList(this.days.keySet());
-      Collections.shuffle(d);
-      days = d;
-    }
-    else days = this.days.keySet();
-    for (Day d : days)
-      b.addAll(getMatchesForDay(d, b.build(), matches));
-    return b.build();
-  }
-
-  private Iterable<Match> getMatchesForDay(Day day, Iterable<Match> existing, ImmutableSet<ImmutableSet<Team>> matches) throws InterruptedException {
-    Set<Team> teams = Sets.newHashSet(this.teams);
-    Set<Match> made = Sets.newHashSet();
-    while (!teams.isEmpty()) {
-      for (Slot s : getDaySlots(day)) {
-        final ImmutableSet<Team> bestMatch = getBestMatch(Iterables.concat(existing, made), matches, teams, s);
-        made.add(makeMatch(s, bestMatch));
-        teams.removeAll(bestMatch);
-      }
-    }
-    return ImmutableSet.copyOf(made);
-  }
-
-  private Collection<Slot> getDaySlots(Day day) {
-    Collection<Slot> slots = this.days.get(day);
-    if (configuration.isRandomizeSlotOrder()) {
-      List<Slot> s = Lists.newArrayList(slots);
-      Collections.shuffle(s, RANDOM);
-      slots = s;
-    }
-    return slots;
-  }
-
-  private ImmutableSet<Team> getBestMatch(Iterable<Match> existing, ImmutableSet<ImmutableSet<Team>> matches, Set<Team> teams, Slot s) throws InterruptedException {
-    int leastSadFaces = Integer.MAX_VALUE;
-    ImmutableSet<Team> bestMatch = null;
-    for (ImmutableSet<Team> m : matches) {
-      if (teams.containsAll(m)) {
-        int sadFaces = getSadFaces(s, m, existing, leastSadFaces);
-        if (sadFaces < leastSadFaces) {
-          bestMatch = m;
-          if (0 == sadFaces) break;
-          leastSadFaces = sadFaces;
-        }
-      }
-    }
-    if (null == bestMatch) throw new AssertionError("bestMatch is null");
-    return bestMatch;
-  }
-
-  private int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) throws InterruptedException {
-    List<SadFacesCallable> sfcs = Lists.newArrayList();
-    for (SadFaceFactor f : SadFaceFactor.values())
-      sfcs.add(new SadFacesCallable(f, configuration.getFactor(f), slot, match, existingMatches, limit));
-    return executor.sum(sfcs);
-  }
-
-  private Match makeMatch(Slot s, final ImmutableSet<Team> bestMatch) {
-    final Match m;
-    if (configuration.isRandomizeMatchOrder()) {
-      List<Team> r = Lists.newArrayList(bestMatch);
-      Collections.shuffle(r, RANDOM);
-      m = new Match(r, s);
-    }
-    else m = new Match(bestMatch, s);
-    return m;
-  }
-
-}
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.FlightRecorder;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * @author W.F. Hartford
+ * 
+ */
+final class MatchMaker {
+
+  private static class SadFacesCallable implements Callable<Integer> {
+
+    private final SadFaceFactor factor;
+
+    private final int weight;
+
+    private final int slot;
+
+    private final int[] match;
+
+    private final ScoringState state;
+
+    private final List<Match> history;
+
+    private final int limit;
+
+    private final ScoringMetrics metrics;
+
+    SadFacesCallable(SadFaceFactor factor, int weight, int slot, int[] match, ScoringState state, List<Match> history, int limit, ScoringMetrics metrics) {
+      this.factor = factor;
+      this.weight = weight;
+      this.slot = slot;
+      this.match = match;
+      this.state = state;
+      this.history = history;
+      this.limit = limit;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      if (null == metrics) return weight * getFactorSadFaces(factor, slot, match, state, history, limit);
+      long start = System.nanoTime();
+      int sadFaces = weight * getFactorSadFaces(factor, slot, match, state, history, limit);
+      metrics.addFactorNanos(factor, System.nanoTime() - start);
+      return sadFaces;
+    }
+
+  }
+
+  /**
+   * Finds the best candidate within a range of candidates, splitting the
+   * range between tasks until it is small enough to be scored by one thread.
+   * All tasks for a slot share the best score and index found so far, packed
+   * into a single <code>long</code> with the score in the high 32 bits, so
+   * that the ordering of the packed values is the ordering of (score, index)
+   * pairs; a candidate only replaces the best if it has a lower score, or an
+   * equal score and a lower index, so the result is the same as scoring the
+   * candidates in order. The range is of candidate indexes or, if there is an
+   * anchor team, of positions in the ascending list of that team's candidates.
+   * An executor without a fork/join pool instead {@link #scan() scans} each of
+   * a fixed number of ranges as a separate task.
+   */
+  private final class BestMatchTask extends RecursiveAction implements Callable<Void> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CandidatePool pool;
+
+    private final long[] teams;
+
+    private final int anchor;
+
+    private final int slot;
+
+    private final ScoringState state;
+
+    private final List<Match> history;
+
+    private final ScoringMetrics metrics;
+
+    private final AtomicLong best;
+
+    private final long cutoff;
+
+    private final int from;
+
+    private final int to;
+
+    BestMatchTask(CandidatePool pool, long[] teams, int anchor, int slot, ScoringState state, List<Match> history, ScoringMetrics metrics, AtomicLong best, long cutoff, int from, int to) {
+      this.pool = pool;
+      this.teams = teams;
+      this.anchor = anchor;
+      this.slot = slot;
+      this.state = state;
+      this.history = history;
+      this.metrics = metrics;
+      this.best = best;
+      this.cutoff = cutoff;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > CANDIDATES_PER_TASK) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new BestMatchTask(pool, teams, anchor, slot, state, history, metrics, best, cutoff, from, middle), new BestMatchTask(pool, teams, anchor, slot, state, history, metrics, best, cutoff, middle, to));
+        return;
+      }
+      scan();
+    }
+
+    @Override
+    public Void call() {
+      scan();
+      return null;
+    }
+
+    private void scan() {
+      int[] match = new int[pool.getSize()];
+      for (int i = from; i < to; i++) {
+        int m = NO_ANCHOR == anchor ? i : pool.getCandidate(anchor, i);
+        long b = best.get();
+        int bestSadFaces = (int) (b >>> 32);
+        int bestIndex = (int) b;
+        if (0 == bestSadFaces && m > bestIndex) return;
+        if (0 == (i & CUTOFF_INTERVAL) && NO_BEST_MATCH != b && isPast(cutoff)) {
+          degraded = true;
+          return;
+        }
+        if (!pool.isAvailable(m, teams)) continue;
+        int limit = m < bestIndex && Integer.MAX_VALUE != bestSadFaces ? bestSadFaces + 1 : bestSadFaces;
+        pool.getMatch(m, match);
+        int sadFaces = getInlineSadFaces(slot, match, state, history, limit, metrics);
+        if (sadFaces < limit || Integer.MAX_VALUE == bestSadFaces) offer(sadFaces, m);
+      }
+    }
+
+    private void offer(int sadFaces, int index) {
+      long candidate = (long) sadFaces << 32 | index;
+      long b;
+      do
+        b = best.get();
+      while (candidate < b && !best.compareAndSet(b, candidate));
+    }
+  }
+
+  private static final SadFaceFactor[] FACTORS = SadFaceFactor.values();
+
+  /**
+   * The number of candidates below which a {@link BestMatchTask} scores its
+   * candidates itself rather than splitting them between two new tasks.
+   */
+  private static final int CANDIDATES_PER_TASK = 256;
+
+  /**
+   * The number of tasks between which the candidates for a slot are divided
+   * when they cannot be split between fork/join tasks.
+   */
+  private static final int TASKS_PER_SLOT = 4 * Runtime.getRuntime().availableProcessors();
+
+  private static final int NO_ANCHOR = -1;
+
+  static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  /**
+   * The mask of the candidate counter below which the time is checked against
+   * the slot's cutoff, so that the clock is read once per 64 candidates.
+   */
+  private static final int CUTOFF_INTERVAL = 0x3f;
+
+  private static final long NO_BEST_MATCH = (long) Integer.MAX_VALUE << 32 | Integer.MAX_VALUE;
+
+  private final Executor executor;
+
+  private final Configuration configuration;
+
+  private final CompiledLeague league;
+
+  private final int[] weights;
+
+  private final int teamSize;
+
+  private final boolean incrementalScoring;
+
+  private final SchedulerListener listener;
+
+  /**
+   * The {@link System#nanoTime()} by which the schedule being made should be
+   * complete, or {@link #NO_DEADLINE}.
+   */
+  private long deadline = NO_DEADLINE;
+
+  private int slotsRemaining;
+
+  private volatile boolean degraded;
+
+  MatchMaker(Configuration configuration, CompiledLeague league, int teamSize) {
+    this(configuration, league, teamSize, newExecutor(configuration), true);
+  }
+
+  MatchMaker(Configuration configuration, CompiledLeague league, int teamSize, boolean incrementalScoring) {
+    this(configuration, league, teamSize, newExecutor(configuration), incrementalScoring);
+  }
+
+  private static Executor newExecutor(Configuration configuration) {
+    return null == configuration ? null : configuration.getExecutionStrategy().newExecutor();
+  }
+
+  /**
+   * @param incrementalScoring
+   *          if <code>true</code>, the sad face factors are calculated from a
+   *          {@link ScoringState} updated as each match is made; otherwise
+   *          every existing match is scanned each time a candidate is scored
+   */
+  MatchMaker(Configuration configuration, CompiledLeague league, int teamSize, Executor executor, boolean incrementalScoring) {
+    if (null == configuration) throw new IllegalArgumentException("configuration may not be null");
+    if (null == league) throw new IllegalArgumentException("league may not be null");
+    if (2 > teamSize) throw new IllegalArgumentException("size must be two or greater");
+    if (null == executor) throw new IllegalArgumentException("executor may not be null");
+    this.executor = executor;
+    this.configuration = configuration;
+    this.league = league;
+    this.weights = new int[FACTORS.length];
+    for (SadFaceFactor f : FACTORS)
+      weights[f.ordinal()] = configuration.getFactor(f);
+    this.teamSize = teamSize;
+    this.incrementalScoring = incrementalScoring;
+    this.listener = configuration.getListener();
+  }
+
+  ImmutableSet<Match> getMatches() throws InterruptedException {
+    return getMatches(solve());
+  }
+
+  /**
+   * @return the teams of the match made in each slot, indexed by slot id
+   */
+  int[][] solve() throws InterruptedException {
+    return solve(null, newRandom(configuration));
+  }
+
+  /**
+   * @param dayListener
+   *          if not <code>null</code>, receives the matches of each day as
+   *          soon as they are final
+   * @see #solve(DayListener, long, SplittableRandom)
+   */
+  int[][] solve(DayListener dayListener, SplittableRandom random) throws InterruptedException {
+    long millis = configuration.getDeadlineMillis();
+    return solve(dayListener, 0 == millis ? NO_DEADLINE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), random);
+  }
+
+  /**
+   * @param dayListener
+   *          if not <code>null</code>, receives the matches of each day as
+   *          soon as they are final: as each day is made if there is no local
+   *          search, otherwise once it is complete
+   * @param deadline
+   *          the {@link System#nanoTime()} by which the schedule should be
+   *          complete, or {@link #NO_DEADLINE}; the time remaining is shared
+   *          equally between the slots remaining, each slot taking the best
+   *          candidate scored within its share, and any local search is
+   *          stopped at the deadline
+   * @param random
+   *          the source of every random choice; the order of the days is
+   *          chosen from it, then a stream is split from it for each day in
+   *          turn, and finally one for the local search, so the choices made
+   *          for a day do not depend on those made for any other
+   * @return the teams of the match made in each slot, indexed by slot id
+   * @see #isDegraded()
+   */
+  int[][] solve(DayListener dayListener, long deadline, SplittableRandom random) throws InterruptedException {
+    if (null == random) throw new IllegalArgumentException("random may not be null");
+    this.deadline = deadline;
+    this.slotsRemaining = league.getSlotCount();
+    this.degraded = false;
+    CandidatePool pool = newPool();
+    int[] days = new int[league.getDayCount()];
+    for (int d = 0; d < days.length; d++)
+      days[d] = d;
+    if (configuration.isRandomizeDayOrder()) shuffle(days, random);
+    SplittableRandom[] dayRandoms = new SplittableRandom[days.length];
+    for (int d = 0; d < days.length; d++)
+      dayRandoms[d] = random.split();
+    ScoringState state = new ScoringState(league, configuration.getScorers());
+    List<Match> history = incrementalScoring ? null : Lists.<Match> newArrayList();
+    int[][] slotMatches = new int[league.getSlotCount()][];
+    long moves = configuration.getImprovementMoves();
+    for (int d : days) {
+      getMatchesForDay(d, pool, state, history, slotMatches, dayRandoms[d], true);
+      if (null != dayListener && 0 == moves) dayListener.dayScheduled(getDay(d), getMatches(slotMatches, d));
+    }
+    if (0 < moves) {
+      improve(slotMatches, state, null, random);
+      if (null != dayListener) for (int d = 0; d < league.getDayCount(); d++)
+        dayListener.dayScheduled(getDay(d), getMatches(slotMatches, d));
+    }
+    return slotMatches;
+  }
+
+  /**
+   * Make the matches of some days of a schedule whose other days are kept.
+   * The kept matches are added to the scoring state before any match is made,
+   * so the new matches are scored against the whole season. Each day is made
+   * in a single pass over its slots, so a day with fewer slots than its teams
+   * need leaves the teams not chosen without a match. Any local search moves
+   * only matches of the days made.
+   *
+   * @param slotMatches
+   *          the teams of the match kept in each slot, indexed by slot id, with
+   *          <code>null</code> for every slot of the days to be made; the new
+   *          matches are made in place
+   * @param days
+   *          the ids of the days to make, in the order to make them
+   * @param random
+   *          the source of every random choice; a stream is split from it for
+   *          each day in turn, then one for the local search
+   */
+  int[][] reschedule(int[][] slotMatches, int[] days, SplittableRandom random) throws InterruptedException {
+    if (null == slotMatches) throw new IllegalArgumentException("slotMatches may not be null");
+    if (null == days) throw new IllegalArgumentException("days may not be null");
+    if (null == random) throw new IllegalArgumentException("random may not be null");
+    long millis = configuration.getDeadlineMillis();
+    this.deadline = 0 == millis ? NO_DEADLINE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    this.slotsRemaining = 0;
+    for (int d : days)
+      slotsRemaining += league.getDaySlots(d).length;
+    this.degraded = false;
+    CandidatePool pool = newPool();
+    ScoringState state = new ScoringState(league, configuration.getScorers());
+    List<Match> history = incrementalScoring ? null : Lists.<Match> newArrayList();
+    for (int s = 0; s < slotMatches.length; s++)
+      if (null != slotMatches[s]) {
+        state.add(s, slotMatches[s]);
+        if (null != history) history.add(makeMatch(s, slotMatches[s]));
+      }
+    for (int d : days)
+      getMatchesForDay(d, pool, state, history, slotMatches, random.split(), false);
+    if (0 < configuration.getImprovementMoves() && 0 < days.length) improve(slotMatches, state, days, random);
+    return slotMatches;
+  }
+
+  private CandidatePool newPool() {
+    long start = System.nanoTime();
+    CandidateGenerationEvent generation = FlightRecorder.isInitialized() ? new CandidateGenerationEvent() : null;
+    if (null != generation) generation.begin();
+    CandidatePool pool = CandidatePool.forLeague(league, teamSize, configuration.isAnchoredSearch());
+    if (null != generation) {
+      generation.end();
+      if (generation.shouldCommit()) {
+        generation.candidates = pool.getCount();
+        generation.size = teamSize;
+        generation.commit();
+      }
+    }
+    if (null != listener) listener.candidatesGenerated(pool.getCount(), System.nanoTime() - start);
+    return pool;
+  }
+
+  /**
+   * Make the configured local search moves between the matches of the days,
+   * or of every day if <code>days</code> is <code>null</code>, unless the
+   * deadline has already passed.
+   */
+  private void improve(int[][] slotMatches, ScoringState state, int[] days, SplittableRandom random) throws InterruptedException {
+    if (isPast(deadline)) {
+      degraded = true;
+      return;
+    }
+    long moves = configuration.getImprovementMoves();
+    long start = System.nanoTime();
+    SplittableRandom searchRandom = random.split();
+    double temperature = configuration.getAnnealingTemperature();
+    LocalSearch search = null == days ? new LocalSearch(league, weights, searchRandom, temperature) : new LocalSearch(league, weights, searchRandom, temperature, days);
+    long change = search.improve(slotMatches, state, moves, deadline);
+    if (search.isStopped()) degraded = true;
+    if (null != listener) listener.improvementFinished(moves, change, System.nanoTime() - start);
+  }
+
+  /**
+   * @return <code>true</code> if the last schedule made was cut short by its
+   *         deadline, some slot taking the best of only some of its candidates
+   *         or the local search being stopped or skipped
+   */
+  boolean isDegraded() {
+    return degraded;
+  }
+
+  ImmutableSet<Match> getMatches(int[][] slotMatches) {
+    ImmutableSet.Builder<Match> b = ImmutableSet.builder();
+    for (int s = 0; s < slotMatches.length; s++)
+      if (null != slotMatches[s]) b.add(makeMatch(s, slotMatches[s]));
+    return b.build();
+  }
+
+  private ImmutableSet<Match> getMatches(int[][] slotMatches, int day) {
+    ImmutableSet.Builder<Match> b = ImmutableSet.builder();
+    for (int s : league.getDaySlots(day))
+      if (null != slotMatches[s]) b.add(makeMatch(s, slotMatches[s]));
+    return b.build();
+  }
+
+  /**
+   * Calculates the total unhappiness of a complete schedule as the weighted
+   * {@link ScoringState#getTotalSadFaces(int[]) totals} of its matches. The
+   * result does not depend on the order in which the matches were made, so
+   * schedules produced by different runs can be compared.
+   */
+  long getSadFaces(int[][] slotMatches) {
+    ScoringState state = new ScoringState(league, configuration.getScorers());
+    for (int s = 0; s < slotMatches.length; s++)
+      if (null != slotMatches[s]) state.add(s, slotMatches[s]);
+    return state.getTotalSadFaces(weights);
+  }
+
+  /**
+   * @param everyTeam
+   *          if <code>true</code>, the slots of the day are filled again until
+   *          every team has a match; otherwise each slot is filled once
+   */
+  private void getMatchesForDay(int day, CandidatePool pool, ScoringState state, List<Match> history, int[][] slotMatches, SplittableRandom random, boolean everyTeam) throws InterruptedException {
+    long dayStart = System.nanoTime();
+    DayEvent dayEvent = FlightRecorder.isInitialized() ? new DayEvent() : null;
+    if (null != dayEvent) dayEvent.begin();
+    long daySadFaces = 0;
+    ScoringMetrics metrics = null == listener ? null : new ScoringMetrics();
+    if (null != listener) listener.dayStarted(getDay(day));
+    long[] teams = TeamBits.all(league.getTeamCount());
+    int[] remaining = null;
+    if (pool.isIndexed()) {
+      remaining = new int[league.getTeamCount()];
+      for (int t = 0; t < remaining.length; t++)
+        remaining[t] = pool.getCandidateCount(t);
+    }
+    while (!TeamBits.isEmpty(teams)) {
+      for (int s : getDaySlots(day, random)) {
+        if (Thread.interrupted()) throw new InterruptedException();
+        final int anchor = null == remaining ? NO_ANCHOR : getAnchor(teams, remaining);
+        long slotStart = System.nanoTime();
+        int scored = null == metrics ? 0 : metrics.getScored();
+        int pruned = null == metrics ? 0 : metrics.getPruned();
+        final long best = getBestMatch(pool, teams, anchor, s, state, history, metrics, getCutoff());
+        final int bestMatch = (int) best;
+        final int sadFaces = (int) (best >>> 32);
+        daySadFaces += sadFaces;
+        slotMatches[s] = pool.getMatch(bestMatch);
+        if (configuration.isRandomizeMatchOrder()) shuffle(slotMatches[s], random);
+        if (null != listener) {
+          listener.matchSelected(league.getSlot(s), league.getTeams(slotMatches[s]), sadFaces, metrics.getScored() - scored, metrics.getPruned() - pruned, System.nanoTime() - slotStart);
+        }
+        state.add(s, slotMatches[s]);
+        if (null != history) history.add(new Match(league.getTeams(slotMatches[s]), league.getSlot(s)));
+        if (null == remaining) pool.removeFrom(teams, bestMatch);
+        else for (int t : slotMatches[s])
+          removeTeam(pool, teams, remaining, t);
+      }
+      if (!everyTeam) break;
+    }
+    if (null != dayEvent) {
+      dayEvent.end();
+      if (dayEvent.shouldCommit()) {
+        dayEvent.day = getDay(day).getName();
+        dayEvent.slots = league.getDaySlots(day).length;
+        dayEvent.sadFaces = daySadFaces;
+        dayEvent.commit();
+      }
+    }
+    if (null != listener) listener.dayFinished(getDay(day), System.nanoTime() - dayStart, metrics.getFactorNanos());
+  }
+
+  /**
+   * @return the time by which the best match for the next slot should be
+   *         chosen, its share of the time remaining before the deadline
+   */
+  private long getCutoff() {
+    int slots = Math.max(1, slotsRemaining--);
+    if (NO_DEADLINE == deadline) return NO_DEADLINE;
+    long now = System.nanoTime();
+    return now + (deadline - now) / slots;
+  }
+
+  private static boolean isPast(long time) {
+    return NO_DEADLINE != time && System.nanoTime() >= time;
+  }
+
+  private Day getDay(int day) {
+    return league.getSlot(league.getDaySlots(day)[0]).getDay();
+  }
+
+  /**
+   * @return the available team with the fewest available candidates, or
+   *         {@link #NO_ANCHOR} if no available team has any
+   */
+  private static int getAnchor(long[] teams, int[] remaining) {
+    int anchor = NO_ANCHOR;
+    for (int t = 0; t < remaining.length; t++)
+      if (0 != (teams[t >>> 6] & 1L << t) && 0 < remaining[t] && (NO_ANCHOR == anchor || remaining[t] < remaining[anchor])) anchor = t;
+    return anchor;
+  }
+
+  /**
+   * Make a team unavailable, reducing the count of available candidates of
+   * every team which shared an available candidate with it.
+   */
+  private static void removeTeam(CandidatePool pool, long[] teams, int[] remaining, int team) {
+    int[] match = new int[pool.getSize()];
+    for (int i = 0, n = pool.getCandidateCount(team); i < n; i++) {
+      int m = pool.getCandidate(team, i);
+      if (pool.isAvailable(m, teams)) {
+        pool.getMatch(m, match);
+        for (int t : match)
+          remaining[t]--;
+      }
+    }
+    teams[team >>> 6] &= ~(1L << team);
+  }
+
+  private int[] getDaySlots(int day, SplittableRandom random) {
+    int[] slots = league.getDaySlots(day);
+    if (configuration.isRandomizeSlotOrder()) {
+      slots = slots.clone();
+      shuffle(slots, random);
+    }
+    return slots;
+  }
+
+  /**
+   * @return a new source of random choices, seeded with the configured seed
+   *         if there is one
+   */
+  static SplittableRandom newRandom(Configuration configuration) {
+    Long seed = configuration.getSeed();
+    return null == seed ? new SplittableRandom() : new SplittableRandom(seed.longValue());
+  }
+
+  private static void shuffle(int[] a, SplittableRandom random) {
+    for (int i = a.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int t = a[i];
+      a[i] = a[j];
+      a[j] = t;
+    }
+  }
+
+  /**
+   * Find the best of the candidate matches whose teams are all in the
+   * <code>teams</code> bitset, considering only those which include the
+   * <code>anchor</code> team if there is one.
+   *
+   * @return the sad faces of the best candidate in the high 32 bits and its
+   *         index in the low 32 bits
+   */
+  private long getBestMatch(CandidatePool pool, long[] teams, int anchor, int s, ScoringState state, List<Match> history, ScoringMetrics metrics, long cutoff) throws InterruptedException {
+    int candidates = NO_ANCHOR == anchor ? pool.getCount() : pool.getCandidateCount(anchor);
+    if (!FlightRecorder.isInitialized()) return findBestMatch(pool, teams, anchor, candidates, s, state, history, metrics, cutoff);
+    BestMatchEvent event = new BestMatchEvent();
+    event.begin();
+    long best = findBestMatch(pool, teams, anchor, candidates, s, state, history, metrics, cutoff);
+    event.end();
+    if (event.shouldCommit()) {
+      Slot slot = league.getSlot(s);
+      event.day = slot.getDay().getName();
+      event.slot = slot.toString();
+      event.candidates = candidates;
+      event.sadFaces = (int) (best >>> 32);
+      event.commit();
+    }
+    return best;
+  }
+
+  /**
+   * Once the cutoff has passed no more candidates are scored, so if it has
+   * passed before the search starts the first available candidate is taken.
+   * The first available candidate is the best so far whatever its score, so a
+   * slot is filled even if every candidate reaches the greatest score.
+   */
+  private long findBestMatch(CandidatePool pool, long[] teams, int anchor, int candidates, int s, ScoringState state, List<Match> history, ScoringMetrics metrics, long cutoff) throws InterruptedException {
+    boolean firstAvailable = isPast(cutoff);
+    if (firstAvailable) degraded = true;
+    else if (configuration.isParallelCandidates() && !executor.isSequential()) {
+      AtomicLong best = new AtomicLong(NO_BEST_MATCH);
+      if (executor.isForkJoin()) executor.invoke(new BestMatchTask(pool, teams, anchor, s, state, history, metrics, best, cutoff, 0, candidates));
+      else {
+        int perTask = Math.max(CANDIDATES_PER_TASK, (candidates + TASKS_PER_SLOT - 1) / TASKS_PER_SLOT);
+        List<BestMatchTask> tasks = Lists.newArrayList();
+        for (int from = 0; from < candidates; from += perTask)
+          tasks.add(new BestMatchTask(pool, teams, anchor, s, state, history, metrics, best, cutoff, from, Math.min(candidates, from + perTask)));
+        executor.invokeAll(tasks);
+      }
+      if (NO_BEST_MATCH == best.get()) throw new AssertionError("bestMatch is null");
+      return best.get();
+    }
+    int leastSadFaces = Integer.MAX_VALUE;
+    int bestMatch = -1;
+    int[] match = new int[pool.getSize()];
+    for (int i = 0; i < candidates; i++) {
+      if (0 == (i & CUTOFF_INTERVAL) && -1 != bestMatch && isPast(cutoff)) {
+        degraded = true;
+        break;
+      }
+      int m = NO_ANCHOR == anchor ? i : pool.getCandidate(anchor, i);
+      if (pool.isAvailable(m, teams)) {
+        pool.getMatch(m, match);
+        int sadFaces = getSadFaces(s, match, state, history, leastSadFaces, metrics);
+        if (sadFaces < leastSadFaces || -1 == bestMatch) {
+          bestMatch = m;
+          leastSadFaces = sadFaces;
+          if (0 == sadFaces || firstAvailable) break;
+        }
+      }
+    }
+    if (-1 == bestMatch) throw new AssertionError("bestMatch is null");
+    return (long) leastSadFaces << 32 | bestMatch;
+  }
+
+  /**
+   * Scores a candidate, with each factor calculated in its own task unless
+   * the executor is sequential. Either way a candidate is counted as pruned
+   * if the built-in factors reach the limit, so that the metrics do not
+   * depend on the executor.
+   */
+  private int getSadFaces(int slot, int[] match, ScoringState state, List<Match> history, int limit, ScoringMetrics metrics) throws InterruptedException {
+    if (executor.isSequential()) return getInlineSadFaces(slot, match, state, history, limit, metrics);
+    if (null != metrics) metrics.scored();
+    List<SadFacesCallable> sfcs = Lists.newArrayList();
+    for (SadFaceFactor f : FACTORS)
+      sfcs.add(new SadFacesCallable(f, weights[f.ordinal()], slot, match, state, history, limit, metrics));
+    int sadFaces = executor.sum(sfcs);
+    if (null != metrics && sadFaces >= limit) metrics.pruned();
+    return state.getScorerSadFaces(slot, match, sadFaces, limit);
+  }
+
+  /**
+   * Scores a candidate one factor at a time, the built-in factors before the
+   * registered ones, abandoning it as soon as its sad faces reach the limit,
+   * since it can then no longer be chosen.
+   */
+  private int getInlineSadFaces(int slot, int[] match, ScoringState state, List<Match> history, int limit, ScoringMetrics metrics) {
+    if (null != metrics) metrics.scored();
+    int sadFaces = 0;
+    for (SadFaceFactor f : FACTORS) {
+      if (sadFaces >= limit) {
+        if (null != metrics) metrics.pruned();
+        return sadFaces;
+      }
+      if (null == metrics) sadFaces += weights[f.ordinal()] * getFactorSadFaces(f, slot, match, state, history, limit);
+      else {
+        long start = System.nanoTime();
+        sadFaces += weights[f.ordinal()] * getFactorSadFaces(f, slot, match, state, history, limit);
+        metrics.addFactorNanos(f, System.nanoTime() - start);
+      }
+    }
+    if (null != metrics && sadFaces >= limit) metrics.pruned();
+    return state.getScorerSadFaces(slot, match, sadFaces, limit);
+  }
+
+  private static int getFactorSadFaces(SadFaceFactor factor, int slot, int[] match, ScoringState state, List<Match> history, int limit) {
+    if (null == history) return factor.getSadFaces(slot, match, state, limit);
+    CompiledLeague league = state.getLeague();
+    return factor.getSadFaces(league.getSlot(slot), league.getTeams(match), history, limit);
+  }
+
+  /**
+   * The order of the teams of a match is that of <code>match</code>, which is
+   * shuffled as the match is made if the match order is randomized, so that
+   * the same match is made each time it is requested.
+   */
+  private Match makeMatch(int s, int[] match) {
+    return new Match(league.getTeams(match), league.getSlot(s));
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Makes several independent randomized passes over a league concurrently and
+ * keeps the schedule with the fewest sad faces. Each pass is made by its own
+ * {@link MatchMaker} scoring candidates on a single thread, so that the passes
+ * themselves can occupy every thread of the configured
+ * {@link ExecutionStrategy}.
+ *
+ * @author W.F. Hartford
+ */
+final class Portfolio {
+
+  private final class Run implements Callable<Run> {
+
+    private final MatchMaker matchMaker = new MatchMaker(runConfiguration, league, teamSize, new Executor(true), true);
+
+    private int[][] slotMatches;
+
+    private final long deadline;
+
+    private final SplittableRandom random;
+
+    private long sadFaces;
+
+    Run(long deadline, SplittableRandom random) {
+      this.deadline = deadline;
+      this.random = random;
+    }
+
+    @Override
+    public Run call() throws InterruptedException {
+      slotMatches = matchMaker.solve(null, deadline, random);
+      sadFaces = matchMaker.getSadFaces(slotMatches);
+      return this;
+    }
+  }
+
+  private final Configuration configuration;
+
+  private final Configuration runConfiguration;
+
+  private final CompiledLeague league;
+
+  private final int teamSize;
+
+  private ImmutableSet<Match> matches;
+
+  private ImmutableList<Long> sadFaces;
+
+  private boolean degraded;
+
+  Portfolio(Configuration configuration, CompiledLeague league, int teamSize) {
+    if (null == configuration) throw new IllegalArgumentException("configuration may not be null");
+    if (null == league) throw new IllegalArgumentException("league may not be null");
+    this.configuration = configuration;
+    this.runConfiguration = Configuration.builder(configuration).randomizeDayOrder(true).randomizeSlotOrder(true).build();
+    this.league = league;
+    this.teamSize = teamSize;
+  }
+
+  /**
+   * Make the configured number of runs, stopping early if the configured budget
+   * is exhausted after at least one run has completed. If the configuration
+   * has a deadline, it is shared by every run, and runs which have not
+   * completed by then are not waited for.
+   */
+  Portfolio run() throws InterruptedException {
+    return run(MatchMaker.newRandom(configuration));
+  }
+
+  /**
+   * @param random
+   *          the source of the random choices of the runs, from which a stream
+   *          is split for each run in turn before any is started, so each run
+   *          makes the same choices however the runs are spread between
+   *          threads; of runs with equally few sad faces, the one started
+   *          first is kept
+   */
+  Portfolio run(SplittableRandom random) throws InterruptedException {
+    int runs = configuration.getPortfolioRuns();
+    long start = System.nanoTime();
+    long budget = configuration.getPortfolioBudgetMillis();
+    long deadline = 0 == budget ? MatchMaker.NO_DEADLINE : start + TimeUnit.MILLISECONDS.toNanos(budget);
+    long runDeadline = 0 == configuration.getDeadlineMillis() ? MatchMaker.NO_DEADLINE : start + TimeUnit.MILLISECONDS.toNanos(configuration.getDeadlineMillis());
+    boolean atRunDeadline = runDeadline < deadline;
+    if (atRunDeadline) deadline = runDeadline;
+    Executor executor = configuration.getExecutionStrategy().newExecutor();
+    List<Future<Run>> futures = Lists.newArrayListWithCapacity(runs);
+    try {
+      CompletionService<Run> cs = new ExecutorCompletionService<Run>(executor.getTaskExecutor());
+      List<Run> started = Lists.newArrayListWithCapacity(runs);
+      for (int i = 0; i < runs; i++)
+        started.add(new Run(runDeadline, random.split()));
+      for (Run r : started)
+        futures.add(cs.submit(r));
+      Set<Run> completed = Sets.newHashSet();
+      while (completed.size() < runs) {
+        final Future<Run> f;
+        if (completed.isEmpty() || MatchMaker.NO_DEADLINE == deadline) f = cs.take();
+        else f = cs.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (null == f) {
+          if (atRunDeadline) degraded = true;
+          break;
+        }
+        try {
+          completed.add(f.get());
+        }
+        catch (ExecutionException e) {
+          throw new AssertionError(e);
+        }
+      }
+      Run best = null;
+      ImmutableList.Builder<Long> sadFaces = ImmutableList.builder();
+      for (Run r : started) {
+        if (!completed.contains(r)) continue;
+        sadFaces.add(r.sadFaces);
+        if (null == best || r.sadFaces < best.sadFaces) best = r;
+      }
+      this.sadFaces = sadFaces.build();
+      this.matches = best.matchMaker.getMatches(best.slotMatches);
+      if (best.matchMaker.isDegraded()) degraded = true;
+      return this;
+    }
+    finally {
+      for (Future<Run> f : futures)
+        f.cancel(true);
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if runs were abandoned at the deadline, or the
+   *         best run was {@link MatchMaker#isDegraded() degraded}
+   */
+  boolean isDegraded() {
+    return degraded;
+  }
+
+  ImmutableSet<Match> getMatches() {
+    return matches;
+  }
+
+  /**
+   * @return the sad faces of the schedule produced by each completed run, in
+   *         the order the runs were started
+   */
+  ImmutableList<Long> getSadFaces() {
+    return sadFaces;
+  }
+}
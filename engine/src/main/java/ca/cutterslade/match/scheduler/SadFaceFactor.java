@@ -1,167 +1,285 @@
-/*
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
- * 
- * http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
- */
-package ca.cutterslade.match.scheduler;
-
-import java.util.Collection;
-import java.util.Map;
-import java.util.Set;
-
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
-
-/**
- * Each enum constand defines a factor which makes people unhappy; the
- * {@link #getSadFaces(Slot, ImmutableSet, Iterable, int)} method calculates the
- * amount of unhappiness produced by a specific factor in a specific scenario.
- * 
- * @author W.F. Hartford
- */
-public enum SadFaceFactor {
-  /**
-   * Calculates the unhappiness produced by teams playing in the same gym
-   * repeatedly.
-   * 
-   * @author W.F. Hartford
-   */
-  GYM(4) {
-
-    @Override
-    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      if (allByes(match)) return 0;
-      int sadFaces = 0;
-      for (Match m : existingMatches) {
-        int commonTeams = Sets.intersection(match, m.getTeams()).size();
-        if (0 != commonTeams && m.getSlot().getGym().equals(slot.getGym())) sadFaces += commonTeams;
-        if (sadFaces >= limit) break;
-      }
-      return sadFaces;
-    }
-  },
-  /**
-   * Calculates the unhappiness produced by teams playing at the same time
-   * repeatedly.
-   * 
-   * @author W.F. Hartford
-   */
-  TIME(2) {
-
-    @Override
-    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      if (allByes(match)) return 0;
-      int sadFaces = 0;
-      for (Match m : existingMatches) {
-        int commonTeams = Sets.intersection(match, m.getTeams()).size();
-        if (0 != commonTeams && m.getSlot().getTime().equals(slot.getTime())) sadFaces += commonTeams;
-        if (sadFaces >= limit) break;
-      }
-      return sadFaces;
-    }
-  },
-  /**
-   * Calculates the unhappiness produced by teams playing at the same time
-   * repeatedly.
-   * 
-   * @author W.F. Hartford
-   */
-  COURT(1) {
-
-    @Override
-    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      if (allByes(match)) return 0;
-      int sadFaces = 0;
-      for (Match m : existingMatches) {
-        int commonTeams = Sets.intersection(match, m.getTeams()).size();
-        if (0 != commonTeams && m.getSlot().getCourt().equals(slot.getCourt())) sadFaces += commonTeams;
-        if (sadFaces >= limit) break;
-      }
-      return sadFaces;
-    }
-  },
-  /**
-   * Calculates the unhappiness produced by teams playing against the same teams
-   * repeatedly.
-   * 
-   * @author W.F. Hartford
-   */
-  MATCH_UP(8) {
-
-    @Override
-    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      if (allByes(match)) return 0;
-      Multimap<Team, Team> playCount = ArrayListMultimap.create();
-      for (Team t : match) {
-        Set<Team> others = ImmutableSet.copyOf(Sets.difference(match, ImmutableSet.of(t)));
-        for (Match m : existingMatches) {
-          if (m.getTeams().contains(t)) playCount.putAll(t, Sets.intersection(m.getTeams(), others));
-        }
-      }
-      int sadFaces = 0;
-      for (Map.Entry<Team, Collection<Team>> e : playCount.asMap().entrySet()) {
-        int alreadyPlayedCount = e.getValue().size();
-        sadFaces += alreadyPlayedCount * alreadyPlayedCount;
-        if (sadFaces >= limit) return sadFaces;
-      }
-      return sadFaces;
-    }
-  },
-  /**
-   * Calculates the unhappiness produced by matches without a full compliment of
-   * teams.
-   * 
-   * @author W.F. Hartford
-   */
-  BYE_MATCH(10000) {
-
-    @Override
-    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      int byes = Iterables.size(Iterables.filter(match, Team.BYE_PREDICATE));
-      return byes == match.size() || byes == 0 ? 0 : 1;
-    }
-  },
-  /**
-   * Calculates the unhappiness produced by teams of a common tier playing in
-   * the same gym on the same day.
-   * 
-   * @author W.F. Hartford
-   */
-  TIER_PER_GYM(2) {
-
-    @Override
-    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
-      Tier tier = match.iterator().next().getTier();
-      Iterable<Match> relatedMatches = tier.getMatches(slot.getSameGymAndDayMatches(existingMatches));
-      int sameTierMatches = Iterables.size(relatedMatches);
-      return sameTierMatches * sameTierMatches;
-    }
-  };
-
-  private final int defaultValue;
-
-  private SadFaceFactor(int defaultValue) {
-    this.defaultValue = defaultValue;
-  }
-
-  abstract int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit);
-
-  public int getDefaultValue() {
-    return defaultValue;
-  }
-
-  boolean allByes(ImmutableSet<Team> match) {
-    return Iterables.all(match, Team.BYE_PREDICATE);
-  }
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+/**
+ * Each enum constand defines a factor which makes people unhappy; the
+ * {@link #getSadFaces(Slot, ImmutableSet, Iterable, int)} method calculates the
+ * amount of unhappiness produced by a specific factor in a specific scenario.
+ * The scheduler scores the built-in factors from the counts of a single
+ * {@link ScoringState} kept for them all, not through
+ * {@link SadFaceScorer}s; registering one as a factor sets its weight. Each is
+ * also a {@link SadFaceScorer.Factory}, and
+ * {@link #newScorer(ImmutableSet, ImmutableSet, Map)} adapts any weighting of
+ * them to a single scorer, so that they can be scored incrementally outside
+ * the scheduler too.
+ * 
+ * @author W.F. Hartford
+ */
+public enum SadFaceFactor implements SadFaceScorer.Factory {
+  /**
+   * Calculates the unhappiness produced by teams playing in the same gym
+   * repeatedly.
+   * 
+   * @author W.F. Hartford
+   */
+  GYM(4) {
+
+    @Override
+    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
+      if (allByes(match)) return 0;
+      int sadFaces = 0;
+      for (Match m : existingMatches) {
+        int commonTeams = Sets.intersection(match, m.getTeams()).size();
+        if (0 != commonTeams && m.getSlot().getGym().equals(slot.getGym())) sadFaces += commonTeams;
+        if (sadFaces >= limit) break;
+      }
+      return sadFaces;
+    }
+
+    @Override
+    int getSadFaces(int slot, int[] match, ScoringState state, int limit) {
+      if (allByes(match, state)) return 0;
+      int gym = state.getLeague().getSlotGym(slot);
+      int sadFaces = 0;
+      for (int t : match) {
+        sadFaces += state.getGymCount(t, gym);
+        if (sadFaces >= limit) break;
+      }
+      return sadFaces;
+    }
+  },
+  /**
+   * Calculates the unhappiness produced by teams playing at the same time
+   * repeatedly.
+   * 
+   * @author W.F. Hartford
+   */
+  TIME(2) {
+
+    @Override
+    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
+      if (allByes(match)) return 0;
+      int sadFaces = 0;
+      for (Match m : existingMatches) {
+        int commonTeams = Sets.intersection(match, m.getTeams()).size();
+        if (0 != commonTeams && m.getSlot().getTime().equals(slot.getTime())) sadFaces += commonTeams;
+        if (sadFaces >= limit) break;
+      }
+      return sadFaces;
+    }
+
+    @Override
+    int getSadFaces(int slot, int[] match, ScoringState state, int limit) {
+      if (allByes(match, state)) return 0;
+      int time = state.getLeague().getSlotTime(slot);
+      int sadFaces = 0;
+      for (int t : match) {
+        sadFaces += state.getTimeCount(t, time);
+        if (sadFaces >= limit) break;
+      }
+      return sadFaces;
+    }
+  },
+  /**
+   * Calculates the unhappiness produced by teams playing at the same time
+   * repeatedly.
+   * 
+   * @author W.F. Hartford
+   */
+  COURT(1) {
+
+    @Override
+    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
+      if (allByes(match)) return 0;
+      int sadFaces = 0;
+      for (Match m : existingMatches) {
+        int commonTeams = Sets.intersection(match, m.getTeams()).size();
+        if (0 != commonTeams && m.getSlot().getCourt().equals(slot.getCourt())) sadFaces += commonTeams;
+        if (sadFaces >= limit) break;
+      }
+      return sadFaces;
+    }
+
+    @Override
+    int getSadFaces(int slot, int[] match, ScoringState state, int limit) {
+      if (allByes(match, state)) return 0;
+      int court = state.getLeague().getSlotCourt(slot);
+      int sadFaces = 0;
+      for (int t : match) {
+        sadFaces += state.getCourtCount(t, court);
+        if (sadFaces >= limit) break;
+      }
+      return sadFaces;
+    }
+  },
+  /**
+   * Calculates the unhappiness produced by teams playing against the same teams
+   * repeatedly.
+   * 
+   * @author W.F. Hartford
+   */
+  MATCH_UP(8) {
+
+    @Override
+    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
+      if (allByes(match)) return 0;
+      Multimap<Team, Team> playCount = ArrayListMultimap.create();
+      for (Team t : match) {
+        Set<Team> others = ImmutableSet.copyOf(Sets.difference(match, ImmutableSet.of(t)));
+        for (Match m : existingMatches) {
+          if (m.getTeams().contains(t)) playCount.putAll(t, Sets.intersection(m.getTeams(), others));
+        }
+      }
+      int sadFaces = 0;
+      for (Map.Entry<Team, Collection<Team>> e : playCount.asMap().entrySet()) {
+        int alreadyPlayedCount = e.getValue().size();
+        sadFaces += alreadyPlayedCount * alreadyPlayedCount;
+        if (sadFaces >= limit) return sadFaces;
+      }
+      return sadFaces;
+    }
+
+    @Override
+    int getSadFaces(int slot, int[] match, ScoringState state, int limit) {
+      if (allByes(match, state)) return 0;
+      int sadFaces = 0;
+      for (int t : match) {
+        int alreadyPlayedCount = 0;
+        for (int o : match)
+          if (t != o) alreadyPlayedCount += state.getMatchUpCount(t, o);
+        sadFaces += alreadyPlayedCount * alreadyPlayedCount;
+        if (sadFaces >= limit) return sadFaces;
+      }
+      return sadFaces;
+    }
+  },
+  /**
+   * Calculates the unhappiness produced by matches without a full compliment of
+   * teams.
+   * 
+   * @author W.F. Hartford
+   */
+  BYE_MATCH(10000) {
+
+    @Override
+    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
+      int byes = Iterables.size(Iterables.filter(match, Team.BYE_PREDICATE));
+      return byes == match.size() || byes == 0 ? 0 : 1;
+    }
+
+    @Override
+    int getSadFaces(int slot, int[] match, ScoringState state, int limit) {
+      int byes = 0;
+      for (int t : match)
+        if (state.getLeague().isBye(t)) byes++;
+      return byes == match.length || byes == 0 ? 0 : 1;
+    }
+  },
+  /**
+   * Calculates the unhappiness produced by teams of a common tier playing in
+   * the same gym on the same day.
+   * 
+   * @author W.F. Hartford
+   */
+  TIER_PER_GYM(2) {
+
+    @Override
+    int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit) {
+      Tier tier = match.iterator().next().getTier();
+      int sameTierMatches = 0;
+      for (Match m : existingMatches)
+        if (m.getDay().equals(slot.getDay()) && m.getGym().equals(slot.getGym()) && m.getTier().equals(tier)) {
+          sameTierMatches++;
+          if (sameTierMatches * sameTierMatches >= limit) break;
+        }
+      return sameTierMatches * sameTierMatches;
+    }
+
+    @Override
+    int getSadFaces(int slot, int[] match, ScoringState state, int limit) {
+      int sameTierMatches = state.getSameTierMatches(slot, state.getLeague().getTeamTier(match[0]));
+      return sameTierMatches * sameTierMatches;
+    }
+  };
+
+  private final int defaultValue;
+
+  private SadFaceFactor(int defaultValue) {
+    this.defaultValue = defaultValue;
+  }
+
+  abstract int getSadFaces(Slot slot, ImmutableSet<Team> match, Iterable<Match> existingMatches, int limit);
+
+  /**
+   * Calculate the unhappiness produced by this factor using the running totals
+   * held by the given {@link ScoringState}, with the slot and teams identified
+   * by their ids in the state's {@link CompiledLeague}. The result must be the
+   * same as that of {@link #getSadFaces(Slot, ImmutableSet, Iterable, int)}
+   * given the matches which have been added to the state.
+   */
+  abstract int getSadFaces(int slot, int[] match, ScoringState state, int limit);
+
+  public int getDefaultValue() {
+    return defaultValue;
+  }
+
+  /**
+   * @return a scorer of this factor alone
+   * @see #newScorer(ImmutableSet, ImmutableSet, Map)
+   */
+  @Override
+  public SadFaceScorer newScorer(ImmutableSet<Slot> slots, ImmutableSet<Team> teams) {
+    return newScorer(slots, teams, ImmutableMap.of(this, 1));
+  }
+
+  /**
+   * Create a single scorer of several built-in factors, which keeps one
+   * {@link ScoringState} of the committed matches for them all, as the
+   * scheduler does, rather than one for each factor.
+   *
+   * @param weights
+   *          the weight of each factor to be scored
+   */
+  public static SadFaceScorer newScorer(ImmutableSet<Slot> slots, ImmutableSet<Team> teams, Map<SadFaceFactor, Integer> weights) {
+    if (null == weights) throw new IllegalArgumentException("weights may not be null");
+    int[] w = new int[values().length];
+    for (Map.Entry<SadFaceFactor, Integer> e : weights.entrySet()) {
+      if (0 > e.getValue()) throw new IllegalArgumentException("weights may not be negative");
+      w[e.getKey().ordinal()] = e.getValue();
+    }
+    return new ScoringState(new CompiledLeague(slots, teams)).asScorer(w);
+  }
+
+  boolean allByes(ImmutableSet<Team> match) {
+    return Iterables.all(match, Team.BYE_PREDICATE);
+  }
+
+  boolean allByes(int[] match, ScoringState state) {
+    for (int t : match)
+      if (!state.getLeague().isBye(t)) return false;
+    return true;
+  }
 }
\ No newline at end of file
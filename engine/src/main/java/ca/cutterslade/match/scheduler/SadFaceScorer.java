@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A factor which makes people unhappy, scored incrementally: a scorer is told
+ * of each match as it is committed to, or removed from, the schedule being
+ * made, and keeps whatever running state it needs to score a candidate
+ * without rescanning the matches already made. Scorers are registered with
+ * {@link Configuration.Builder#factor(SadFaceScorer.Factory, int)}, and their
+ * sad faces, multiplied by their weights, are added to those of the built-in
+ * {@link SadFaceFactor}s. The scheduler scores the built-in factors from the
+ * counts it keeps for them all rather than through scorers; each is also a
+ * {@link Factory}, so that it can be scored the same way outside the
+ * scheduler.
+ * <p>
+ * {@link #score(ImmutableSet, Slot, int)} may be called concurrently by
+ * several threads when candidates are scored in parallel, but never
+ * concurrently with {@link #onMatchCommitted(Match)} or
+ * {@link #onMatchRemoved(Match)}.
+ *
+ * @author W.F. Hartford
+ */
+public interface SadFaceScorer {
+
+  /**
+   * Creates the scorer for each schedule made, including each run of a
+   * portfolio, so that a scorer holds the state of a single schedule.
+   */
+  interface Factory {
+
+    /**
+     * @param slots
+     *          the slots of the schedule to be made
+     * @param teams
+     *          the teams of the schedule to be made, including byes
+     */
+    SadFaceScorer newScorer(ImmutableSet<Slot> slots, ImmutableSet<Team> teams);
+  }
+
+  /**
+   * Called when a match is added to the schedule.
+   */
+  void onMatchCommitted(Match match);
+
+  /**
+   * Called when a match previously committed is removed from the schedule, as
+   * the local search does when trying a move.
+   */
+  void onMatchRemoved(Match match);
+
+  /**
+   * @param limit
+   *          the sad faces at which the candidate can no longer be chosen; a
+   *          scorer may stop counting and return any value not less than this
+   *          once it is reached
+   * @return the sad faces the candidate would add to the committed matches
+   */
+  int score(ImmutableSet<Team> candidate, Slot slot, int limit);
+
+  /**
+   * @return the sad faces of the committed matches, which must depend only on
+   *         which matches are committed, not the order in which they were
+   */
+  long getTotalSadFaces();
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps the schedules made for it in a directory, so that a league scheduled
+ * again with the same inputs is read rather than made. Each schedule is
+ * serialized to a file named by a SHA-256 hash of everything which decides
+ * it: the names of the teams, tiers, gyms, courts, times and days in order,
+ * the size of each match, and each option of the {@link Configuration} which
+ * affects the result, including the serialized form of each registered
+ * factor. Options which do not, such as the listener and the execution
+ * strategy, are ignored. A schedule read from the cache is given the
+ * requested configuration, so it keeps the registered factors and other
+ * options which are not serialized. A file is read through an allow-list of
+ * the classes a schedule is made of, and one holding any other class is
+ * deleted without creating it.
+ * <p>
+ * Only reproducible schedules are cached: those whose configuration makes no
+ * random choices or has a seed and registers only serializable factors, which
+ * were not cut short by a deadline and which did not have portfolio runs
+ * abandoned at a budget. When the files of the cache grow beyond the maximum
+ * size, the least recently used are deleted.
+ *
+ * @author W.F. Hartford
+ */
+public final class ScheduleCache {
+
+  /**
+   * The version of the hashed inputs and of the serialized model; changing
+   * either must change this so that older files are no longer found.
+   */
+  private static final int VERSION = 5;
+
+  private static final String SUFFIX = ".schedule";
+
+  private final File directory;
+
+  private final long maxBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param maxBytes
+   *          the size the files of the cache may reach before the least
+   *          recently used are deleted
+   */
+  public ScheduleCache(File directory, long maxBytes) throws IOException {
+    if (null == directory) throw new IllegalArgumentException("directory may not be null");
+    if (0 > maxBytes) throw new IllegalArgumentException("maxBytes may not be negative");
+    if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("could not create " + directory);
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the cached schedule for the inputs, or a new one, which is cached
+   *         if it is reproducible
+   */
+  public Scheduler getScheduler(Configuration config, Set<String> teams, Set<String> tiers, Set<String> gyms, Set<String> courts, Set<String> times, Set<String> days, int teamSize) throws InterruptedException, IOException {
+    if (null == config) throw new IllegalArgumentException("config may not be null");
+    if (!isReproducible(config)) {
+      misses.incrementAndGet();
+      return new Scheduler(config, teams, tiers, gyms, courts, times, days, teamSize);
+    }
+    File file = new File(directory, key(config, teams, tiers, gyms, courts, times, days, teamSize) + SUFFIX);
+    Scheduler scheduler = read(file);
+    if (null != scheduler) {
+      hits.incrementAndGet();
+      return scheduler.withConfig(config);
+    }
+    misses.incrementAndGet();
+    scheduler = new Scheduler(config, teams, tiers, gyms, courts, times, days, teamSize);
+    if (!scheduler.isDegraded()) write(file, scheduler);
+    return scheduler;
+  }
+
+  public Scheduler getScheduler(Configuration config, int nTeams, int nTiers, int nGyms, int nCourts, int nTimes, int nDays, int size) throws InterruptedException, IOException {
+    return getScheduler(config, Scheduler.setOf(nTeams), Scheduler.setOf(nTiers), Scheduler.setOf(nGyms), Scheduler.setOf(nCourts), Scheduler.setOf(nTimes), Scheduler.setOf(nDays), size);
+  }
+
+  /**
+   * @return the number of schedules read from the cache
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of schedules made because they were not in the cache
+   *         or could not be
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private static boolean isReproducible(Configuration config) {
+    if (config.isRandomized() && null == config.getSeed()) return false;
+    for (SadFaceScorer.Factory f : config.getScorers().keySet())
+      if (!(f instanceof Serializable)) return false;
+    return 1 == config.getPortfolioRuns() || 0 == config.getPortfolioBudgetMillis();
+  }
+
+  /**
+   * @return the hexadecimal SHA-256 hash of the inputs which decide a schedule
+   */
+  static String key(Configuration config, Set<String> teams, Set<String> tiers, Set<String> gyms, Set<String> courts, Set<String> times, Set<String> days, int teamSize) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(VERSION);
+      for (Set<String> names : Arrays.asList(teams, tiers, gyms, courts, times, days)) {
+        out.writeInt(names.size());
+        for (String name : names)
+          out.writeUTF(name);
+      }
+      out.writeInt(teamSize);
+      for (SadFaceFactor f : SadFaceFactor.values())
+        out.writeInt(config.getFactor(f));
+      out.writeInt(config.getScorers().size());
+      for (Map.Entry<SadFaceScorer.Factory, Integer> e : config.getScorers().entrySet()) {
+        ByteArrayOutputStream factory = new ByteArrayOutputStream();
+        ObjectOutputStream o = new ObjectOutputStream(factory);
+        o.writeObject(e.getKey());
+        o.close();
+        out.writeInt(factory.size());
+        factory.writeTo(out);
+        out.writeInt(e.getValue());
+      }
+      out.writeBoolean(config.isRandomizeMatchOrder());
+      out.writeBoolean(config.isRandomizeDayOrder());
+      out.writeBoolean(config.isRandomizeSlotOrder());
+      out.writeInt(config.getPortfolioRuns());
+      out.writeLong(config.getPortfolioBudgetMillis());
+      out.writeLong(config.getImprovementMoves());
+      out.writeDouble(config.getAnnealingTemperature());
+      out.writeBoolean(config.isAnchoredSearch());
+      out.writeBoolean(null != config.getSeed());
+      if (null != config.getSeed()) out.writeLong(config.getSeed().longValue());
+      out.close();
+    }
+    catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    try {
+      StringBuilder b = new StringBuilder();
+      for (byte x : MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray()))
+        b.append(Character.forDigit(x >> 4 & 0xf, 16)).append(Character.forDigit(x & 0xf, 16));
+      return b.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * The classes a cached schedule is made of: the model, the serialized forms
+   * of the immutable collections holding it and the boxed numbers they hold.
+   * Any other class in a file is rejected before it is created.
+   */
+  private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+      "ca.cutterslade.match.scheduler.Scheduler;ca.cutterslade.match.scheduler.Configuration;ca.cutterslade.match.scheduler.SadFaceFactor;"
+          + "ca.cutterslade.match.scheduler.MatchIndex;ca.cutterslade.match.scheduler.Match;ca.cutterslade.match.scheduler.Slot;"
+          + "ca.cutterslade.match.scheduler.Team;ca.cutterslade.match.scheduler.Tier;ca.cutterslade.match.scheduler.Gym;"
+          + "ca.cutterslade.match.scheduler.Court;ca.cutterslade.match.scheduler.Time;ca.cutterslade.match.scheduler.Day;"
+          + "com.google.common.collect.*;java.lang.Enum;java.lang.Number;java.lang.Integer;java.lang.Long;java.lang.Object;!*");
+
+  /**
+   * @return the schedule in the file, or <code>null</code> if there is none;
+   *         a file which cannot be read or holds a class other than those of
+   *         a schedule is deleted
+   */
+  private static Scheduler read(File file) {
+    if (!file.isFile()) return null;
+    try {
+      InputStream in = new FileInputStream(file);
+      try {
+        ObjectInputStream objects = new ObjectInputStream(in);
+        objects.setObjectInputFilter(FILTER);
+        Scheduler scheduler = (Scheduler) objects.readObject();
+        file.setLastModified(System.currentTimeMillis());
+        return scheduler;
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException e) {
+      file.delete();
+      return null;
+    }
+    catch (ClassNotFoundException e) {
+      file.delete();
+      return null;
+    }
+    catch (RuntimeException e) {
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Write the schedule to a temporary file renamed into place, so that a
+   * partly written file is never read, then evict the least recently used
+   * files.
+   */
+  private synchronized void write(File file, Scheduler scheduler) throws IOException {
+    File temp = File.createTempFile("schedule", ".tmp", directory);
+    try {
+      OutputStream out = new FileOutputStream(temp);
+      try {
+        ObjectOutputStream o = new ObjectOutputStream(out);
+        o.writeObject(scheduler);
+        o.flush();
+      }
+      finally {
+        out.close();
+      }
+      if (!temp.renameTo(file)) throw new IOException("could not rename " + temp + " to " + file);
+    }
+    finally {
+      temp.delete();
+    }
+    evict();
+  }
+
+  private void evict() {
+    File[] files = directory.listFiles();
+    if (null == files) return;
+    long size = 0;
+    for (File f : files)
+      if (f.getName().endsWith(SUFFIX)) size += f.length();
+    if (size <= maxBytes) return;
+    final Map<File, Long> used = Maps.newHashMap();
+    for (File f : files)
+      used.put(f, f.lastModified());
+    Arrays.sort(files, new Comparator<File>() {
+
+      @Override
+      public int compare(File a, File b) {
+        return used.get(a).compareTo(used.get(b));
+      }
+    });
+    for (File f : files) {
+      if (size <= maxBytes) break;
+      if (!f.getName().endsWith(SUFFIX)) continue;
+      long length = f.length();
+      if (f.delete()) size -= length;
+    }
+  }
+}
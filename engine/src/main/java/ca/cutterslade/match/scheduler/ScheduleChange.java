@@ -0,0 +1,179 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A change to a made schedule, applied by
+ * {@link Scheduler#reschedule(java.util.Set, ScheduleChange)}. Each change
+ * decides the gyms, courts, days, slots and teams of the new schedule from
+ * those of the old, which of the old matches are kept, and which days are
+ * affected and so must be made again.
+ *
+ * @author W.F. Hartford
+ */
+public abstract class ScheduleChange {
+
+  private final String description;
+
+  ScheduleChange(String description) {
+    this.description = description;
+  }
+
+  /**
+   * The slot can no longer be used, as when a gym is unavailable for a day.
+   * Its day is made again with one slot fewer, so the teams of one match do
+   * not play that day.
+   */
+  public static ScheduleChange removeSlot(final Slot slot) {
+    if (null == slot) throw new IllegalArgumentException("slot may not be null");
+    return new ScheduleChange("remove " + slot) {
+
+      @Override
+      void check(Scheduler scheduler) {
+        if (!scheduler.getSlots().contains(slot)) throw new IllegalArgumentException(slot + " is not part of this schedule");
+      }
+
+      @Override
+      ImmutableSet<Slot> getSlots(Scheduler scheduler) {
+        ImmutableSet.Builder<Slot> b = ImmutableSet.builder();
+        for (Slot s : scheduler.getSlots())
+          if (!s.equals(slot)) b.add(s);
+        return b.build();
+      }
+
+      @Override
+      boolean isAffected(Day day) {
+        return slot.getDay().equals(day);
+      }
+    };
+  }
+
+  /**
+   * The team withdraws, and is replaced by a bye of its tier. Every day which
+   * is not frozen is made again, and on frozen days the bye takes its place in
+   * its matches.
+   */
+  public static ScheduleChange removeTeam(final Team team) {
+    if (null == team) throw new IllegalArgumentException("team may not be null");
+    return new ScheduleChange("remove " + team) {
+
+      @Override
+      void check(Scheduler scheduler) {
+        if (!scheduler.getTeams().contains(team)) throw new IllegalArgumentException(team + " is not part of this schedule");
+        if (team.isBye()) throw new IllegalArgumentException(team + " is a bye");
+      }
+
+      @Override
+      ImmutableSet<Team> getTeams(Scheduler scheduler) {
+        ImmutableSet.Builder<Team> b = ImmutableSet.builder();
+        for (Team t : scheduler.getTeams())
+          b.add(team.equals(t) ? getBye(scheduler) : t);
+        return b.build();
+      }
+
+      @Override
+      Team getTeam(Scheduler scheduler, Team t) {
+        return team.equals(t) ? getBye(scheduler) : t;
+      }
+
+      /**
+       * @return the first bye of the team's tier not already in the schedule
+       */
+      private Team getBye(Scheduler scheduler) {
+        Team bye;
+        int i = 0;
+        do
+          bye = new Team("B" + i++, team.getTier());
+        while (scheduler.getTeams().contains(bye));
+        return bye;
+      }
+
+      @Override
+      boolean isAffected(Day day) {
+        return true;
+      }
+    };
+  }
+
+  /**
+   * A day is added after the last, with a slot for every court and time. Only
+   * the new day is made.
+   */
+  public static ScheduleChange addDay(String name) {
+    if (null == name) throw new IllegalArgumentException("name may not be null");
+    final Day day = new Day(name);
+    return new ScheduleChange("add " + day) {
+
+      @Override
+      void check(Scheduler scheduler) {
+        if (scheduler.getDays().contains(day)) throw new IllegalArgumentException(day + " is already part of this schedule");
+      }
+
+      @Override
+      ImmutableSet<Day> getDays(Scheduler scheduler) {
+        return ImmutableSet.<Day> builder().addAll(scheduler.getDays()).add(day).build();
+      }
+
+      @Override
+      ImmutableSet<Slot> getSlots(Scheduler scheduler) {
+        return ImmutableSet.<Slot> builder().addAll(scheduler.getSlots()).addAll(Slot.forNames(scheduler.getTimes(), scheduler.getCourts(), ImmutableSet.of(day))).build();
+      }
+
+      @Override
+      boolean isAffected(Day d) {
+        return day.equals(d);
+      }
+    };
+  }
+
+  /**
+   * @throws IllegalArgumentException
+   *           if the change cannot be made to the schedule; a change is
+   *           checked before any other of its methods are called
+   */
+  abstract void check(Scheduler scheduler);
+
+  ImmutableSet<Day> getDays(Scheduler scheduler) {
+    return scheduler.getDays();
+  }
+
+  ImmutableSet<Slot> getSlots(Scheduler scheduler) {
+    return scheduler.getSlots();
+  }
+
+  ImmutableSet<Team> getTeams(Scheduler scheduler) {
+    return scheduler.getTeams();
+  }
+
+  /**
+   * @return the team of the new schedule which takes the place of a team of
+   *         the old in the matches which are kept
+   */
+  Team getTeam(Scheduler scheduler, Team team) {
+    return team;
+  }
+
+  /**
+   * @return <code>true</code> if the day must be made again, unless it is
+   *         frozen
+   */
+  abstract boolean isAffected(Day day);
+
+  @Override
+  public String toString() {
+    return description;
+  }
+}
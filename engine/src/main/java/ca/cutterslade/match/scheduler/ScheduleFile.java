@@ -0,0 +1,450 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A schedule in a compact binary file, read through a memory mapping so that
+ * opening it builds only its gyms, courts, times, days, tiers and teams, and
+ * each match is built when it is looked up.
+ * <p>
+ * The file is big-endian. A header of a magic number, the format version, the
+ * seed, the sad faces and a flags word is followed by a table of the distinct
+ * names of the schedule's entities, each an int length and that many bytes of
+ * UTF-8. The gyms, times, days and tiers follow as an int count and the index
+ * of each name in the table; the courts and teams as an int count and a pair
+ * of ints for each, its name and its gym or tier. Finally come the size of a
+ * match, the number of matches, and a record of <code>1 + size</code> ints
+ * for each match: the index of its slot, then the index of each of its teams.
+ * Slots are numbered by day, then court, then time, as
+ * {@link Scheduler#getSlots()} orders them, and the records are in order of
+ * slot, so that a slot's match is found by binary search and a day's matches
+ * are consecutive.
+ *
+ * @author W.F. Hartford
+ */
+public final class ScheduleFile {
+
+  private static final int MAGIC = 0x4d534348;
+
+  /**
+   * The version of the format; changing the format must change this so that
+   * older files are refused rather than misread.
+   */
+  private static final int VERSION = 1;
+
+  private static final int DEGRADED = 1;
+
+  private final ByteBuffer buffer;
+
+  private final long seed;
+
+  private final long sadFaces;
+
+  private final boolean degraded;
+
+  private final ImmutableList<Gym> gyms;
+
+  private final ImmutableList<Court> courts;
+
+  private final ImmutableList<Time> times;
+
+  private final ImmutableList<Day> days;
+
+  private final ImmutableList<Tier> tiers;
+
+  private final ImmutableList<Team> teams;
+
+  private final ImmutableMap<Court, Integer> courtIds;
+
+  private final ImmutableMap<Time, Integer> timeIds;
+
+  private final ImmutableMap<Day, Integer> dayIds;
+
+  private final int size;
+
+  private final int matchCount;
+
+  private final int recordsStart;
+
+  /**
+   * Write the schedule to the file, replacing anything already there.
+   */
+  public static void write(Scheduler scheduler, File file) throws IOException {
+    if (null == scheduler) throw new IllegalArgumentException("scheduler may not be null");
+    if (null == file) throw new IllegalArgumentException("file may not be null");
+    Map<String, Integer> names = Maps.newLinkedHashMap();
+    Map<Gym, Integer> gymIds = ids(scheduler.getGyms());
+    Map<Court, Integer> courtIds = ids(scheduler.getCourts());
+    Map<Time, Integer> timeIds = ids(scheduler.getTimes());
+    Map<Day, Integer> dayIds = ids(scheduler.getDays());
+    Map<Tier, Integer> tierIds = ids(scheduler.getTiers());
+    Map<Team, Integer> teamIds = ids(scheduler.getTeams());
+    for (Gym g : scheduler.getGyms())
+      name(names, g.getName());
+    for (Court c : scheduler.getCourts())
+      name(names, c.getName());
+    for (Time t : scheduler.getTimes())
+      name(names, t.getName());
+    for (Day d : scheduler.getDays())
+      name(names, d.getName());
+    for (Tier t : scheduler.getTiers())
+      name(names, t.getName());
+    for (Team t : scheduler.getTeams())
+      name(names, t.getName());
+    List<Match> matches = Lists.newArrayList(scheduler.getMatches());
+    int size = matches.isEmpty() ? 0 : matches.get(0).getTeams().size();
+    long[] records = new long[matches.size()];
+    for (int i = 0; i < records.length; i++) {
+      Slot s = matches.get(i).getSlot();
+      int slot = (dayIds.get(s.getDay()) * courtIds.size() + courtIds.get(s.getCourt())) * timeIds.size() + timeIds.get(s.getTime());
+      records[i] = (long) slot << 32 | i;
+    }
+    Arrays.sort(records);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(scheduler.getSeed());
+      out.writeLong(scheduler.getSadFaces());
+      out.writeInt(scheduler.isDegraded() ? DEGRADED : 0);
+      out.writeInt(names.size());
+      for (String name : names.keySet()) {
+        byte[] bytes = name.getBytes(Charsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      out.writeInt(scheduler.getGyms().size());
+      for (Gym g : scheduler.getGyms())
+        out.writeInt(names.get(g.getName()));
+      out.writeInt(scheduler.getCourts().size());
+      for (Court c : scheduler.getCourts()) {
+        out.writeInt(names.get(c.getName()));
+        out.writeInt(gymIds.get(c.getGym()));
+      }
+      out.writeInt(scheduler.getTimes().size());
+      for (Time t : scheduler.getTimes())
+        out.writeInt(names.get(t.getName()));
+      out.writeInt(scheduler.getDays().size());
+      for (Day d : scheduler.getDays())
+        out.writeInt(names.get(d.getName()));
+      out.writeInt(scheduler.getTiers().size());
+      for (Tier t : scheduler.getTiers())
+        out.writeInt(names.get(t.getName()));
+      out.writeInt(scheduler.getTeams().size());
+      for (Team t : scheduler.getTeams()) {
+        out.writeInt(names.get(t.getName()));
+        out.writeInt(tierIds.get(t.getTier()));
+      }
+      out.writeInt(size);
+      out.writeInt(records.length);
+      for (long record : records) {
+        Match m = matches.get((int) record);
+        if (size != m.getTeams().size()) throw new IllegalArgumentException("matches have " + size + " and " + m.getTeams().size() + " teams");
+        out.writeInt((int) (record >>> 32));
+        for (Team t : m.getTeams())
+          out.writeInt(teamIds.get(t));
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  private static <T> Map<T, Integer> ids(Iterable<T> entities) {
+    Map<T, Integer> ids = Maps.newHashMap();
+    for (T entity : entities)
+      ids.put(entity, ids.size());
+    return ids;
+  }
+
+  private static void name(Map<String, Integer> names, String name) {
+    if (!names.containsKey(name)) names.put(name, names.size());
+  }
+
+  /**
+   * Map the schedule in the file; the mapping remains valid after the file is
+   * closed, so nothing need be closed once the schedule is no longer used.
+   *
+   * @throws IOException
+   *           if the file cannot be read, is not a schedule file or is
+   *           corrupt
+   */
+  public static ScheduleFile open(File file) throws IOException {
+    if (null == file) throw new IllegalArgumentException("file may not be null");
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      if (Integer.MAX_VALUE < channel.size()) throw new IOException("schedule file too large to map: " + file);
+      return new ScheduleFile(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Read the header and tables and check every count and index in the file,
+   * so that a corrupt file is refused here rather than misread later.
+   */
+  private ScheduleFile(File file, ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (16 > buffer.limit() || MAGIC != buffer.getInt(0)) throw new IOException("not a schedule file: " + file);
+    if (VERSION != buffer.getInt(4)) throw new IOException("unsupported schedule file version " + buffer.getInt(4) + ": " + file);
+    ByteBuffer in = buffer.duplicate();
+    try {
+      in.position(8);
+      seed = in.getLong();
+      sadFaces = in.getLong();
+      degraded = 0 != (in.getInt() & DEGRADED);
+      String[] names = new String[count(in, 4, "names")];
+      for (int i = 0; i < names.length; i++) {
+        byte[] bytes = new byte[count(in, 1, "name bytes")];
+        in.get(bytes);
+        names[i] = new String(bytes, Charsets.UTF_8);
+      }
+      ImmutableList.Builder<Gym> gyms = ImmutableList.builder();
+      for (int i = 0, n = count(in, 4, "gyms"); i < n; i++)
+        gyms.add(new Gym(names[id(in, names.length, "name")]));
+      this.gyms = gyms.build();
+      ImmutableList.Builder<Court> courts = ImmutableList.builder();
+      for (int i = 0, n = count(in, 8, "courts"); i < n; i++)
+        courts.add(new Court(names[id(in, names.length, "name")], this.gyms.get(id(in, this.gyms.size(), "gym"))));
+      this.courts = courts.build();
+      ImmutableList.Builder<Time> times = ImmutableList.builder();
+      for (int i = 0, n = count(in, 4, "times"); i < n; i++)
+        times.add(new Time(names[id(in, names.length, "name")]));
+      this.times = times.build();
+      ImmutableList.Builder<Day> days = ImmutableList.builder();
+      for (int i = 0, n = count(in, 4, "days"); i < n; i++)
+        days.add(new Day(names[id(in, names.length, "name")]));
+      this.days = days.build();
+      ImmutableList.Builder<Tier> tiers = ImmutableList.builder();
+      for (int i = 0, n = count(in, 4, "tiers"); i < n; i++)
+        tiers.add(new Tier(names[id(in, names.length, "name")]));
+      this.tiers = tiers.build();
+      ImmutableList.Builder<Team> teams = ImmutableList.builder();
+      for (int i = 0, n = count(in, 8, "teams"); i < n; i++)
+        teams.add(new Team(names[id(in, names.length, "name")], this.tiers.get(id(in, this.tiers.size(), "tier"))));
+      this.teams = teams.build();
+      size = id(in, this.teams.size() + 1, "match size");
+      matchCount = count(in, recordBytes(), "matches");
+      recordsStart = in.position();
+      checkRecords(in);
+      courtIds = ids(this.courts);
+      timeIds = ids(this.times);
+      dayIds = ids(this.days);
+    }
+    catch (IOException e) {
+      throw new IOException("corrupt schedule file " + file + ": " + e.getMessage(), e);
+    }
+    catch (RuntimeException e) {
+      throw new IOException("corrupt schedule file " + file + ": " + e, e);
+    }
+  }
+
+  /**
+   * @return the count read from the buffer, checked against what remains of
+   *         it given the bytes of each counted item
+   */
+  private static int count(ByteBuffer in, int bytesEach, String what) throws IOException {
+    int count = in.getInt();
+    if (0 > count || (long) count * bytesEach > in.remaining()) throw new IOException("bad count of " + what + ": " + count);
+    return count;
+  }
+
+  /**
+   * @return the index read from the buffer, checked to be less than
+   *         <code>limit</code>
+   */
+  private static int id(ByteBuffer in, int limit, String what) throws IOException {
+    int id = in.getInt();
+    if (0 > id || limit <= id) throw new IOException("bad " + what + " index: " + id);
+    return id;
+  }
+
+  /**
+   * Check that the slot of each match record is in the schedule and not
+   * before that of the previous record, and that each of its teams is.
+   */
+  private void checkRecords(ByteBuffer in) throws IOException {
+    long slotCount = (long) days.size() * courts.size() * times.size();
+    int previous = 0;
+    for (int r = 0; r < matchCount; r++) {
+      int slot = id(in, (int) Math.min(slotCount, Integer.MAX_VALUE), "slot");
+      if (slot < previous) throw new IOException("match records out of order at slot " + slot);
+      previous = slot;
+      for (int i = 0; i < size; i++)
+        id(in, teams.size(), "team");
+    }
+  }
+
+  private static <T> ImmutableMap<T, Integer> ids(List<T> entities) {
+    ImmutableMap.Builder<T, Integer> ids = ImmutableMap.builder();
+    for (int i = 0; i < entities.size(); i++)
+      ids.put(entities.get(i), i);
+    return ids.build();
+  }
+
+  private int recordBytes() {
+    return 4 * (1 + size);
+  }
+
+  public ImmutableList<Gym> getGyms() {
+    return gyms;
+  }
+
+  public ImmutableList<Court> getCourts() {
+    return courts;
+  }
+
+  public ImmutableList<Time> getTimes() {
+    return times;
+  }
+
+  public ImmutableList<Day> getDays() {
+    return days;
+  }
+
+  public ImmutableList<Tier> getTiers() {
+    return tiers;
+  }
+
+  public ImmutableList<Team> getTeams() {
+    return teams;
+  }
+
+  public int getMatchCount() {
+    return matchCount;
+  }
+
+  /**
+   * @return the match in the slot, or <code>null</code> if the slot is not of
+   *         this schedule or has no match
+   */
+  public Match getMatch(Day day, Time time, Court court) {
+    Integer d = dayIds.get(day);
+    Integer t = timeIds.get(time);
+    Integer c = courtIds.get(court);
+    if (null == d || null == t || null == c) return null;
+    int slot = (d * courts.size() + c) * times.size() + t;
+    int record = firstRecord(slot);
+    return record < matchCount && slot == getSlot(record) ? getMatch(record) : null;
+  }
+
+  /**
+   * @return the matches of the day, in order of court then time
+   */
+  public ImmutableList<Match> getMatches(Day day) {
+    Integer d = dayIds.get(day);
+    if (null == d) return ImmutableList.of();
+    int slotsPerDay = courts.size() * times.size();
+    return getMatches(firstRecord(d * slotsPerDay), firstRecord((d + 1) * slotsPerDay));
+  }
+
+  /**
+   * @return the matches of the day at the time, in order of court
+   */
+  public ImmutableList<Match> getMatches(Day day, Time time) {
+    ImmutableList.Builder<Match> b = ImmutableList.builder();
+    for (Court court : courts) {
+      Match m = getMatch(day, time, court);
+      if (null != m) b.add(m);
+    }
+    return b.build();
+  }
+
+  /**
+   * @return every match of the schedule, in order of day, court and time
+   */
+  public ImmutableList<Match> getMatches() {
+    return getMatches(0, matchCount);
+  }
+
+  private ImmutableList<Match> getMatches(int from, int to) {
+    ImmutableList.Builder<Match> b = ImmutableList.builder();
+    for (int r = from; r < to; r++)
+      b.add(getMatch(r));
+    return b.build();
+  }
+
+  /**
+   * @return the seed of the random choices made for the schedule
+   * @see Scheduler#getSeed()
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * @see Scheduler#getSadFaces()
+   */
+  public long getSadFaces() {
+    return sadFaces;
+  }
+
+  /**
+   * @see Scheduler#isDegraded()
+   */
+  public boolean isDegraded() {
+    return degraded;
+  }
+
+  /**
+   * @return the index of the first record whose slot is not less than
+   *         <code>slot</code>
+   */
+  private int firstRecord(int slot) {
+    int low = 0;
+    int high = matchCount;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (getSlot(mid) < slot) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  private int getSlot(int record) {
+    return buffer.getInt(recordsStart + record * recordBytes());
+  }
+
+  private Match getMatch(int record) {
+    int base = recordsStart + record * recordBytes();
+    int slot = buffer.getInt(base);
+    int slotsPerDay = courts.size() * times.size();
+    Slot s = new Slot(times.get(slot % times.size()), days.get(slot / slotsPerDay), courts.get(slot % slotsPerDay / times.size()));
+    List<Team> matchTeams = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++)
+      matchTeams.add(teams.get(buffer.getInt(base + 4 * (1 + i))));
+    return new Match(matchTeams, s);
+  }
+}
@@ -1,168 +1,347 @@
-/*
- * Licensed under the Apache License, Version 2.0 (the "License"); you may not
- * use this file except in compliance with the License. You may obtain a copy of
- * the License at
- * 
- * http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
- * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
- * License for the specific language governing permissions and limitations under
- * the License.
- */
-package ca.cutterslade.match.scheduler;
-
-import java.util.Set;
-
-import com.google.common.base.Function;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Maps;
-
-public final class Scheduler {
-
-  private final Configuration config;
-
-  private final ImmutableSet<Gym> gyms;
-
-  private final ImmutableSet<Court> courts;
-
-  private final ImmutableSet<Day> days;
-
-  private final ImmutableSet<Time> times;
-
-  private final ImmutableSet<Slot> slots;
-
-  private final ImmutableSet<Tier> tiers;
-
-  private final ImmutableSet<Team> teams;
-
-  private final ImmutableSet<Match> matches;
-
-  private final ImmutableMap<Day, ImmutableMap<Time, ImmutableSet<Match>>> dayTimeMatches;
-
-  private final ImmutableMap<Day, ImmutableSet<Match>> dayMatches;
-
-  private final ImmutableMap<Slot, Match> slotMatches;
-
-  public Scheduler(Configuration config, Set<String> teams, Set<String> tiers, Set<String> gyms, Set<String> courts, Set<String> times, Set<String> days, int teamSize) throws InterruptedException {
-    if (null == config) throw new IllegalArgumentException("config may not be null");
-    if (null == teams) throw new IllegalArgumentException("teams may not be null");
-    if (null == tiers) throw new IllegalArgumentException("tiers may not be null");
-    if (null == gyms) throw new IllegalArgumentException("gyms may not be null");
-    if (null == courts) throw new IllegalArgumentException("courts may not be null");
-    if (null == times) throw new IllegalArgumentException("times may not be null");
-    if (null == days) throw new IllegalArgumentException("days may not be null");
-    this.config = config;
-    this.gyms = Gym.forNames(gyms);
-    this.courts = Court.forNames(courts, this.gyms);
-    this.days = Day.forNames(days);
-    this.times = Time.forNames(times);
-    this.slots = Slot.forNames(this.times, this.courts, this.days);
-    this.tiers = Tier.forNames(tiers);
-    int slotsPerDay = gyms.size() * courts.size() * times.size();
-    int possibleTeams = slotsPerDay * teamSize;
-    ImmutableSet<Team> realTeams = Team.forNames(teams, this.tiers, (int) Math.ceil(possibleTeams / (double) this.tiers.size()));
-    if (teams.size() > possibleTeams) throw new IllegalArgumentException(teams.size() + " teams cannot play in " + slotsPerDay + " slots per day");
-    else if (teams.size() < possibleTeams) this.teams = padWithByes(this.tiers, realTeams, possibleTeams / this.tiers.size());
-    else this.teams = realTeams;
-    this.matches = new MatchMaker(config, slots, this.teams, teamSize).getMatches();
-    ImmutableMap.Builder<Day, ImmutableMap<Time, ImmutableSet<Match>>> dayTimeMatches = ImmutableMap.builder();
-    for (Day day : this.days) {
-      ImmutableMap.Builder<Time, ImmutableSet<Match>> timeMatches = ImmutableMap.builder();
-      for (Time time : this.times) {
-        ImmutableSet.Builder<Match> b = ImmutableSet.builder();
-        for (Match m : matches)
-          if (m.getDay().equals(day) && m.getTime().equals(time)) b.add(m);
-        timeMatches.put(time, b.build());
-      }
-      dayTimeMatches.put(day, timeMatches.build());
-    }
-    this.dayTimeMatches = dayTimeMatches.build();
-    ImmutableMap.Builder<Day, ImmutableSet<Match>> dayMatches = ImmutableMap.builder();
-    for (Day day : this.days)
-      dayMatches.put(day, ImmutableSet.copyOf(Iterables.concat(this.dayTimeMatches.get(day).values())));
-    this.dayMatches = dayMatches.build();
-    slotMatches = Maps.uniqueIndex(matches, new Function<Match, Slot>() {
-
-      @Override
-      public Slot apply(Match match) {
-        return match.getSlot();
-      }
-    });
-  }
-
-  private static ImmutableSet<Team> padWithByes(ImmutableSet<Tier> tiers, ImmutableSet<Team> realTeams, int teamsPerTier) {
-    ImmutableSet.Builder<Team> b = ImmutableSet.builder();
-    for (Tier tier : tiers) {
-      ImmutableSet<Team> tierTeams = ImmutableSet.copyOf(tier.getTeams(realTeams));
-      b.addAll(tierTeams);
-      if (tierTeams.size() > teamsPerTier) throw new AssertionError("More than allowed number of teams");
-      if (tierTeams.size() < teamsPerTier) for (int i = 0, n = teamsPerTier - tierTeams.size(); i < n; i++)
-        b.add(new Team("B" + i, tier));
-    }
-    return b.build();
-  }
-
-  public Scheduler(Configuration config, int nTeams, int nTiers, int nGyms, int nCourts, int nTimes, int nDays, int size) throws InterruptedException {
-    this(config, setOf(nTeams), setOf(nTiers), setOf(nGyms), setOf(nCourts), setOf(nTimes), setOf(nDays), size);
-  }
-
-  private static ImmutableSet<String> setOf(int n) {
-    ImmutableSet.Builder<String> b = ImmutableSet.builder();
-    for (int i = 0; i < n; i++)
-      b.add(String.valueOf(i));
-    return b.build();
-  }
-
-  public Configuration getConfig() {
-    return config;
-  }
-
-  public ImmutableSet<Gym> getGyms() {
-    return gyms;
-  }
-
-  public ImmutableSet<Court> getCourts() {
-    return courts;
-  }
-
-  public ImmutableSet<Day> getDays() {
-    return days;
-  }
-
-  public ImmutableSet<Time> getTimes() {
-    return times;
-  }
-
-  public ImmutableSet<Slot> getSlots() {
-    return slots;
-  }
-
-  public ImmutableSet<Tier> getTiers() {
-    return tiers;
-  }
-
-  public ImmutableSet<Team> getTeams() {
-    return teams;
-  }
-
-  public ImmutableSet<Match> getMatches() {
-    return matches;
-  }
-
-  public ImmutableSet<Match> getMatches(Day day) {
-    return dayMatches.get(day);
-  }
-
-  public ImmutableSet<Match> getMatches(Day day, Time time) {
-    return dayTimeMatches.get(day).get(time);
-  }
-
-  public Match getMatch(Day day, Time time, Court court) {
-    return slotMatches.get(new Slot(time, day, court));
-  }
-
-}
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+public final class Scheduler implements Serializable {
+
+  /**
+   * 1
+   */
+  private static final long serialVersionUID = 1L;
+
+  private final Configuration config;
+
+  private final ImmutableSet<Gym> gyms;
+
+  private final ImmutableSet<Court> courts;
+
+  private final ImmutableSet<Day> days;
+
+  private final ImmutableSet<Time> times;
+
+  private final ImmutableSet<Slot> slots;
+
+  private final ImmutableSet<Tier> tiers;
+
+  private final ImmutableSet<Team> teams;
+
+  private final ImmutableSet<Match> matches;
+
+  private final MatchIndex index;
+
+  private final ImmutableList<Long> runSadFaces;
+
+  private final boolean degraded;
+
+  private final long seed;
+
+  public Scheduler(Configuration config, Set<String> teams, Set<String> tiers, Set<String> gyms, Set<String> courts, Set<String> times, Set<String> days, int teamSize) throws InterruptedException {
+    this(config, teams, tiers, gyms, courts, times, days, teamSize, null);
+  }
+
+  private Scheduler(Configuration config, Set<String> teams, Set<String> tiers, Set<String> gyms, Set<String> courts, Set<String> times, Set<String> days, int teamSize, DayListener dayListener) throws InterruptedException {
+    if (null == config) throw new IllegalArgumentException("config may not be null");
+    if (null == teams) throw new IllegalArgumentException("teams may not be null");
+    if (null == tiers) throw new IllegalArgumentException("tiers may not be null");
+    if (null == gyms) throw new IllegalArgumentException("gyms may not be null");
+    if (null == courts) throw new IllegalArgumentException("courts may not be null");
+    if (null == times) throw new IllegalArgumentException("times may not be null");
+    if (null == days) throw new IllegalArgumentException("days may not be null");
+    this.config = config;
+    this.gyms = Gym.forNames(gyms);
+    this.courts = Court.forNames(courts, this.gyms);
+    this.days = Day.forNames(days);
+    this.times = Time.forNames(times);
+    this.slots = Slot.forNames(this.times, this.courts, this.days);
+    this.tiers = Tier.forNames(tiers);
+    int slotsPerDay = gyms.size() * courts.size() * times.size();
+    int possibleTeams = slotsPerDay * teamSize;
+    ImmutableSet<Team> realTeams = Team.forNames(teams, this.tiers, (int) Math.ceil(possibleTeams / (double) this.tiers.size()));
+    if (teams.size() > possibleTeams) throw new IllegalArgumentException(teams.size() + " teams cannot play in " + slotsPerDay + " slots per day");
+    else if (teams.size() < possibleTeams) this.teams = padWithByes(this.tiers, realTeams, possibleTeams / this.tiers.size());
+    else this.teams = realTeams;
+    CompiledLeague league = new CompiledLeague(slots, this.teams);
+    this.seed = null == config.getSeed() ? new SplittableRandom().nextLong() : config.getSeed().longValue();
+    if (1 < config.getPortfolioRuns()) {
+      Portfolio portfolio = new Portfolio(config, league, teamSize).run(new SplittableRandom(seed));
+      this.matches = portfolio.getMatches();
+      this.runSadFaces = portfolio.getSadFaces();
+      this.degraded = portfolio.isDegraded();
+    }
+    else {
+      Executor executor = config.getExecutionStrategy().newExecutor();
+      try {
+        MatchMaker matchMaker = new MatchMaker(config, league, teamSize, executor, true);
+        int[][] slotMatches = matchMaker.solve(dayListener, new SplittableRandom(seed));
+        this.matches = matchMaker.getMatches(slotMatches);
+        this.runSadFaces = ImmutableList.of(matchMaker.getSadFaces(slotMatches));
+        this.degraded = matchMaker.isDegraded();
+      }
+      finally {
+        executor.shutdown();
+      }
+    }
+    this.index = new MatchIndex(this.days, this.times, this.courts, matches);
+    if (null != dayListener && 1 < config.getPortfolioRuns()) for (Day day : this.days)
+      dayListener.dayScheduled(day, index.getMatches(day));
+  }
+
+  private Scheduler(Scheduler scheduler, Configuration config) {
+    this.config = config;
+    this.gyms = scheduler.gyms;
+    this.courts = scheduler.courts;
+    this.days = scheduler.days;
+    this.times = scheduler.times;
+    this.slots = scheduler.slots;
+    this.tiers = scheduler.tiers;
+    this.teams = scheduler.teams;
+    this.matches = scheduler.matches;
+    this.index = scheduler.index;
+    this.runSadFaces = scheduler.runSadFaces;
+    this.degraded = scheduler.degraded;
+    this.seed = scheduler.seed;
+  }
+
+  private Scheduler(Scheduler previous, Set<Day> frozenDays, ScheduleChange change) throws InterruptedException {
+    if (null == frozenDays) throw new IllegalArgumentException("frozenDays may not be null");
+    if (null == change) throw new IllegalArgumentException("change may not be null");
+    change.check(previous);
+    this.config = previous.config;
+    this.gyms = previous.gyms;
+    this.courts = previous.courts;
+    this.times = previous.times;
+    this.tiers = previous.tiers;
+    this.days = change.getDays(previous);
+    this.slots = change.getSlots(previous);
+    this.teams = change.getTeams(previous);
+    this.seed = previous.seed;
+    CompiledLeague league = new CompiledLeague(slots, this.teams);
+    boolean[] remade = new boolean[league.getDayCount()];
+    for (int s = 0; s < league.getSlotCount(); s++) {
+      Day day = league.getSlot(s).getDay();
+      remade[league.getSlotDay(s)] = change.isAffected(day) && !frozenDays.contains(day);
+    }
+    int[][] slotMatches = new int[league.getSlotCount()][];
+    for (Match m : previous.matches) {
+      if (!slots.contains(m.getSlot())) continue;
+      int s = league.getSlotId(m.getSlot());
+      if (remade[league.getSlotDay(s)]) continue;
+      int[] match = new int[m.getTeams().size()];
+      int i = 0;
+      for (Team t : m.getTeams())
+        match[i++] = league.getTeamId(change.getTeam(previous, t));
+      slotMatches[s] = match;
+    }
+    List<Integer> remadeDays = Lists.newArrayList();
+    for (int d = 0; d < remade.length; d++)
+      if (remade[d]) remadeDays.add(d);
+    int teamSize = previous.matches.iterator().next().getTeams().size();
+    Executor executor = config.getExecutionStrategy().newExecutor();
+    try {
+      MatchMaker matchMaker = new MatchMaker(config, league, teamSize, executor, true);
+      matchMaker.reschedule(slotMatches, Ints.toArray(remadeDays), new SplittableRandom(seed));
+      this.matches = matchMaker.getMatches(slotMatches);
+      this.runSadFaces = ImmutableList.of(matchMaker.getSadFaces(slotMatches));
+      this.degraded = matchMaker.isDegraded();
+    }
+    finally {
+      executor.shutdown();
+    }
+    this.index = new MatchIndex(this.days, this.times, this.courts, matches);
+  }
+
+  /**
+   * Make a schedule on a new daemon thread, passing the matches of each day to
+   * <code>dayListener</code> as soon as they are final. Cancelling the returned
+   * future with interruption stops the work of the schedule, including any
+   * candidates being scored concurrently, after which no more days are
+   * received.
+   *
+   * @param dayListener
+   *          receives the matches of each day; may be <code>null</code>
+   * @return a future for the completed schedule, which fails with the cause of
+   *         any exception thrown while making it
+   */
+  public static Future<Scheduler> schedule(final Configuration config, final Set<String> teams, final Set<String> tiers, final Set<String> gyms, final Set<String> courts, final Set<String> times, final Set<String> days, final int teamSize, final DayListener dayListener) {
+    FutureTask<Scheduler> task = new FutureTask<Scheduler>(new Callable<Scheduler>() {
+
+      @Override
+      public Scheduler call() throws InterruptedException {
+        return new Scheduler(config, teams, tiers, gyms, courts, times, days, teamSize, dayListener);
+      }
+    });
+    Executor.DAEMON_THREAD_FACTORY.newThread(task).start();
+    return task;
+  }
+
+  private static ImmutableSet<Team> padWithByes(ImmutableSet<Tier> tiers, ImmutableSet<Team> realTeams, int teamsPerTier) {
+    ImmutableSet.Builder<Team> b = ImmutableSet.builder();
+    for (Tier tier : tiers) {
+      ImmutableSet<Team> tierTeams = ImmutableSet.copyOf(tier.getTeams(realTeams));
+      b.addAll(tierTeams);
+      if (tierTeams.size() > teamsPerTier) throw new AssertionError("More than allowed number of teams");
+      if (tierTeams.size() < teamsPerTier) for (int i = 0, n = teamsPerTier - tierTeams.size(); i < n; i++)
+        b.add(new Team("B" + i, tier));
+    }
+    return b.build();
+  }
+
+  public Scheduler(Configuration config, int nTeams, int nTiers, int nGyms, int nCourts, int nTimes, int nDays, int size) throws InterruptedException {
+    this(config, setOf(nTeams), setOf(nTiers), setOf(nGyms), setOf(nCourts), setOf(nTimes), setOf(nDays), size);
+  }
+
+  public static Future<Scheduler> schedule(Configuration config, int nTeams, int nTiers, int nGyms, int nCourts, int nTimes, int nDays, int size, DayListener dayListener) {
+    return schedule(config, setOf(nTeams), setOf(nTiers), setOf(nGyms), setOf(nCourts), setOf(nTimes), setOf(nDays), size, dayListener);
+  }
+
+  static ImmutableSet<String> setOf(int n) {
+    ImmutableSet.Builder<String> b = ImmutableSet.builder();
+    for (int i = 0; i < n; i++)
+      b.add(String.valueOf(i));
+    return b.build();
+  }
+
+  public Configuration getConfig() {
+    return config;
+  }
+
+  public ImmutableSet<Gym> getGyms() {
+    return gyms;
+  }
+
+  public ImmutableSet<Court> getCourts() {
+    return courts;
+  }
+
+  public ImmutableSet<Day> getDays() {
+    return days;
+  }
+
+  public ImmutableSet<Time> getTimes() {
+    return times;
+  }
+
+  public ImmutableSet<Slot> getSlots() {
+    return slots;
+  }
+
+  public ImmutableSet<Tier> getTiers() {
+    return tiers;
+  }
+
+  public ImmutableSet<Team> getTeams() {
+    return teams;
+  }
+
+  public ImmutableSet<Match> getMatches() {
+    return matches;
+  }
+
+  public ImmutableSet<Match> getMatches(Day day) {
+    return index.getMatches(day);
+  }
+
+  public ImmutableSet<Match> getMatches(Day day, Time time) {
+    return index.getMatches(day, time);
+  }
+
+  /**
+   * Make a new schedule from this one after a change, keeping the matches of
+   * every day the change does not affect and of every frozen day, and making
+   * only the others again. The kept matches are scored with the new ones, so
+   * the new days balance the season as a whole, but are not moved; a frozen
+   * day which loses a slot simply loses its match. The new schedule has this
+   * schedule's configuration and seed, and is made in a single run whatever
+   * the configured portfolio.
+   *
+   * @param frozenDays
+   *          the days whose matches must not change, such as those already
+   *          published
+   * @throws IllegalArgumentException
+   *           if the change cannot be made to this schedule
+   * @throws IllegalStateException
+   *           if this schedule was deserialized and its configuration
+   *           registered factors, which are not serialized
+   * @see #withConfig(Configuration)
+   */
+  public Scheduler reschedule(Set<Day> frozenDays, ScheduleChange change) throws InterruptedException {
+    if (config.isMissingScorers()) throw new IllegalStateException("the registered factors of the configuration were lost when the schedule was serialized");
+    return new Scheduler(this, frozenDays, change);
+  }
+
+  /**
+   * @return this schedule with the given configuration, which must make the
+   *         same schedule; used to restore the options a deserialized
+   *         schedule's configuration lost, such as its registered factors
+   */
+  public Scheduler withConfig(Configuration config) {
+    if (null == config) throw new IllegalArgumentException("config may not be null");
+    return new Scheduler(this, config);
+  }
+
+  public Match getMatch(Day day, Time time, Court court) {
+    return index.getMatch(day, time, court);
+  }
+
+  /**
+   * @return the total weighted sad faces of the schedule
+   */
+  public long getSadFaces() {
+    return Collections.min(runSadFaces);
+  }
+
+  /**
+   * @return the total weighted sad faces of the schedule produced by each
+   *         run, in the order the runs were started; there is one run unless
+   *         {@link Configuration.Builder#portfolioRuns(int) portfolio runs}
+   *         were configured
+   */
+  public ImmutableList<Long> getRunSadFaces() {
+    return runSadFaces;
+  }
+
+  /**
+   * @return <code>true</code> if the configured
+   *         {@link Configuration.Builder#deadline(long, java.util.concurrent.TimeUnit)
+   *         deadline} cut the search short, so that the schedule, while
+   *         complete, may have more sad faces than it otherwise would
+   */
+  public boolean isDegraded() {
+    return degraded;
+  }
+
+  /**
+   * @return the seed of the random choices made for the schedule, either that
+   *         {@link Configuration.Builder#seed(long) configured} or one chosen
+   *         for it; scheduling again with this seed reproduces the schedule
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Receives notice of the progress of a schedule as it is made, with timings
+ * in nanoseconds. A listener is set with
+ * {@link Configuration.Builder#listener(SchedulerListener)}; when none is set
+ * no timings are taken. The methods of a listener may be called concurrently
+ * by the runs of a {@link Configuration.Builder#portfolioRuns(int) portfolio}.
+ *
+ * @author W.F. Hartford
+ */
+public interface SchedulerListener {
+
+  /**
+   * Called once the possible matches of the league have been generated.
+   */
+  void candidatesGenerated(int candidates, long nanos);
+
+  void dayStarted(Day day);
+
+  /**
+   * Called each time the best match for a slot is chosen.
+   *
+   * @param sadFaces
+   *          the weighted sad faces of the chosen match
+   * @param scored
+   *          the number of available candidates which were scored
+   * @param pruned
+   *          the number of those candidates whose built-in factors reached
+   *          the sad faces of the best found so far, so that they could no
+   *          longer be better and their scoring was cut short
+   */
+  void matchSelected(Slot slot, ImmutableSet<Team> teams, int sadFaces, int scored, int pruned, long nanos);
+
+  /**
+   * @param factorNanos
+   *          the time spent calculating each factor during the day; factors
+   *          calculated concurrently are each timed in full
+   */
+  void dayFinished(Day day, long nanos, ImmutableMap<SadFaceFactor, Long> factorNanos);
+
+  /**
+   * Called once the local search of a schedule is complete.
+   *
+   * @param change
+   *          the change in the weighted sad faces of the schedule
+   */
+  void improvementFinished(long moves, long change, long nanos);
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Counts the candidates scored and pruned and the time spent on each factor
+ * while a day is scheduled, for reporting to a {@link SchedulerListener}. The
+ * counts may be updated concurrently by the tasks scoring a slot's
+ * candidates.
+ *
+ * @author W.F. Hartford
+ */
+final class ScoringMetrics {
+
+  private static final SadFaceFactor[] FACTORS = SadFaceFactor.values();
+
+  private final AtomicLongArray factorNanos = new AtomicLongArray(FACTORS.length);
+
+  private final AtomicInteger scored = new AtomicInteger();
+
+  private final AtomicInteger pruned = new AtomicInteger();
+
+  void addFactorNanos(SadFaceFactor factor, long nanos) {
+    factorNanos.addAndGet(factor.ordinal(), nanos);
+  }
+
+  void scored() {
+    scored.incrementAndGet();
+  }
+
+  void pruned() {
+    pruned.incrementAndGet();
+  }
+
+  int getScored() {
+    return scored.get();
+  }
+
+  int getPruned() {
+    return pruned.get();
+  }
+
+  ImmutableMap<SadFaceFactor, Long> getFactorNanos() {
+    ImmutableMap.Builder<SadFaceFactor, Long> b = ImmutableMap.builder();
+    for (SadFaceFactor f : FACTORS)
+      b.put(f, factorNanos.get(f.ordinal()));
+    return b.build();
+  }
+}
@@ -0,0 +1,419 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Running totals of the matches made so far, kept so that the
+ * {@link SadFaceFactor}s do not have to rescan every existing match each time a
+ * candidate is scored. The {@link MatchMaker} calls {@link #add(int, int[])}
+ * once for every match it makes; the counts are then read concurrently while
+ * candidates are scored. Teams, slots and their attributes are identified by
+ * their ids in the {@link CompiledLeague}. The state also holds a
+ * {@link SadFaceScorer} for each registered factor, which it tells of every
+ * match added and removed.
+ *
+ * @author W.F. Hartford
+ */
+final class ScoringState {
+
+  private final CompiledLeague league;
+
+  /**
+   * Number of times each team has played in each gym, indexed by
+   * <code>team * gyms + gym</code>.
+   */
+  private final int[] gymCounts;
+
+  /**
+   * Number of times each team has played at each time, indexed by
+   * <code>team * times + time</code>.
+   */
+  private final int[] timeCounts;
+
+  /**
+   * Number of times each team has played on each court, indexed by
+   * <code>team * courts + court</code>.
+   */
+  private final int[] courtCounts;
+
+  /**
+   * Number of times each pair of teams has played together, as the lower
+   * triangle of a matrix indexed by <code>b * (b - 1) / 2 + a</code> where
+   * <code>a &lt; b</code>.
+   */
+  private final int[] matchUpCounts;
+
+  /**
+   * Number of matches of each tier in each gym on each day, indexed by
+   * <code>(day * gyms + gym) * tiers + tier</code>.
+   */
+  private final int[] tierCounts;
+
+  /**
+   * The slot of the match each team plays on each day, or <code>-1</code>,
+   * indexed by <code>team * days + day</code>.
+   */
+  private final int[] teamDaySlots;
+
+  /**
+   * The teams of the match in each slot, or <code>null</code>.
+   */
+  private final int[][] slotMatches;
+
+  /**
+   * For the match each team plays on each day, the number of times the team
+   * met the other teams of that match on earlier days, indexed by
+   * <code>team * days + day</code>.
+   */
+  private final int[] teamDayMatchUps;
+
+  /**
+   * The total sad faces of every match in the state for each factor, indexed
+   * by factor ordinal: the sum of what the factor charges each match when the
+   * matches are added one day after another. A team plays at most once a day,
+   * so the matches of a day share no team and the order within a day changes
+   * no factor's total but that of {@link SadFaceFactor#TIER_PER_GYM}, which
+   * for <code>n</code> matches of a tier in a gym on a day is the sum of
+   * <code>k<sup>2</sup></code> for <code>k</code> below <code>n</code> in any
+   * order. The totals are kept as matches are added and removed in any order,
+   * so the total of a schedule does not depend on the order it was made in:
+   * <ul>
+   * <li>{@link SadFaceFactor#GYM}, {@link SadFaceFactor#TIME} and
+   * {@link SadFaceFactor#COURT}: for every team, each match not made only of
+   * byes is charged the team's matches in the same gym, at the same time or
+   * on the same court on earlier days; for a team which is not a bye this is
+   * the number of pairs of its matches there</li>
+   * <li>{@link SadFaceFactor#MATCH_UP}: each match not made only of byes is
+   * charged, for each of its teams, the square of that team's
+   * {@link #teamDayMatchUps}</li>
+   * <li>{@link SadFaceFactor#BYE_MATCH}: the number of matches with some, but
+   * not all, of their teams byes</li>
+   * </ul>
+   */
+  private final long[] totals = new long[SadFaceFactor.values().length];
+
+  /**
+   * The scorers of the factors registered in addition to the built-in ones,
+   * told of every match added to or removed from the state.
+   */
+  private final SadFaceScorer[] scorers;
+
+  private final int[] scorerWeights;
+
+  ScoringState(CompiledLeague league) {
+    this(league, ImmutableMap.<SadFaceScorer.Factory, Integer> of());
+  }
+
+  /**
+   * @param factors
+   *          the weight of each registered factor, a scorer of which is
+   *          created for this state
+   */
+  ScoringState(CompiledLeague league, Map<SadFaceScorer.Factory, Integer> factors) {
+    if (null == league) throw new IllegalArgumentException("league may not be null");
+    if (null == factors) throw new IllegalArgumentException("factors may not be null");
+    this.league = league;
+    this.scorers = new SadFaceScorer[factors.size()];
+    this.scorerWeights = new int[factors.size()];
+    int i = 0;
+    for (Map.Entry<SadFaceScorer.Factory, Integer> e : factors.entrySet()) {
+      scorers[i] = e.getKey().newScorer(league.getSlots(), league.getTeams());
+      scorerWeights[i++] = e.getValue();
+    }
+    int teams = league.getTeamCount();
+    this.gymCounts = new int[teams * league.getGymCount()];
+    this.timeCounts = new int[teams * league.getTimeCount()];
+    this.courtCounts = new int[teams * league.getCourtCount()];
+    this.matchUpCounts = new int[teams * (teams - 1) / 2];
+    this.tierCounts = new int[league.getDayCount() * league.getGymCount() * league.getTierCount()];
+    this.teamDaySlots = new int[teams * league.getDayCount()];
+    Arrays.fill(teamDaySlots, -1);
+    this.slotMatches = new int[league.getSlotCount()][];
+    this.teamDayMatchUps = new int[teams * league.getDayCount()];
+  }
+
+  CompiledLeague getLeague() {
+    return league;
+  }
+
+  /**
+   * Add a match; no team of the match may already have a match on the same
+   * day. The state keeps the array, which must not be modified until the
+   * match is removed.
+   */
+  void add(int slot, int[] match) {
+    int gym = league.getSlotGym(slot);
+    int time = league.getSlotTime(slot);
+    int court = league.getSlotCourt(slot);
+    int day = league.getSlotDay(slot);
+    boolean charged = !allByes(match);
+    slotMatches[slot] = match;
+    for (int team : match) {
+      if (league.isBye(team)) addByeTotals(team, slot, charged, 1);
+      else {
+        totals[SadFaceFactor.GYM.ordinal()] += gymCounts[team * league.getGymCount() + gym];
+        totals[SadFaceFactor.TIME.ordinal()] += timeCounts[team * league.getTimeCount() + time];
+        totals[SadFaceFactor.COURT.ordinal()] += courtCounts[team * league.getCourtCount() + court];
+      }
+      gymCounts[team * league.getGymCount() + gym]++;
+      timeCounts[team * league.getTimeCount() + time]++;
+      courtCounts[team * league.getCourtCount() + court]++;
+      for (int other : match)
+        if (other < team) matchUpCounts[matchUpIndex(other, team)]++;
+      int matchUps = 0;
+      for (int other : match)
+        if (other != team) matchUps += getEarlierMatchUps(team, other, day);
+      teamDayMatchUps[team * league.getDayCount() + day] = matchUps;
+      if (charged) totals[SadFaceFactor.MATCH_UP.ordinal()] += matchUps * matchUps;
+      updateLaterMatchUps(team, day, match, 1);
+      teamDaySlots[team * league.getDayCount() + day] = slot;
+    }
+    if (isByeMatch(match)) totals[SadFaceFactor.BYE_MATCH.ordinal()]++;
+    int sameTierMatches = tierCounts[tierIndex(slot, league.getTeamTier(match[0]))]++;
+    totals[SadFaceFactor.TIER_PER_GYM.ordinal()] += sameTierMatches * sameTierMatches;
+    if (0 != scorers.length) {
+      Match m = new Match(league.getTeams(match), league.getSlot(slot));
+      for (SadFaceScorer scorer : scorers)
+        scorer.onMatchCommitted(m);
+    }
+  }
+
+  /**
+   * Remove a match previously passed to {@link #add(int, int[])}.
+   */
+  void remove(int slot, int[] match) {
+    int gym = league.getSlotGym(slot);
+    int time = league.getSlotTime(slot);
+    int court = league.getSlotCourt(slot);
+    int day = league.getSlotDay(slot);
+    boolean charged = !allByes(match);
+    for (int team : match) {
+      teamDaySlots[team * league.getDayCount() + day] = -1;
+      updateLaterMatchUps(team, day, match, -1);
+      int matchUps = teamDayMatchUps[team * league.getDayCount() + day];
+      if (charged) totals[SadFaceFactor.MATCH_UP.ordinal()] -= matchUps * matchUps;
+      teamDayMatchUps[team * league.getDayCount() + day] = 0;
+      for (int other : match)
+        if (other < team) matchUpCounts[matchUpIndex(other, team)]--;
+      gymCounts[team * league.getGymCount() + gym]--;
+      timeCounts[team * league.getTimeCount() + time]--;
+      courtCounts[team * league.getCourtCount() + court]--;
+      if (league.isBye(team)) addByeTotals(team, slot, charged, -1);
+      else {
+        totals[SadFaceFactor.GYM.ordinal()] -= gymCounts[team * league.getGymCount() + gym];
+        totals[SadFaceFactor.TIME.ordinal()] -= timeCounts[team * league.getTimeCount() + time];
+        totals[SadFaceFactor.COURT.ordinal()] -= courtCounts[team * league.getCourtCount() + court];
+      }
+    }
+    slotMatches[slot] = null;
+    if (isByeMatch(match)) totals[SadFaceFactor.BYE_MATCH.ordinal()]--;
+    int sameTierMatches = --tierCounts[tierIndex(slot, league.getTeamTier(match[0]))];
+    totals[SadFaceFactor.TIER_PER_GYM.ordinal()] -= sameTierMatches * sameTierMatches;
+    if (0 != scorers.length) {
+      Match m = new Match(league.getTeams(match), league.getSlot(slot));
+      for (SadFaceScorer scorer : scorers)
+        scorer.onMatchRemoved(m);
+    }
+  }
+
+  /**
+   * @return the number of earlier days than <code>day</code> on which the
+   *         teams played in the same match
+   */
+  private int getEarlierMatchUps(int team, int other, int day) {
+    int days = league.getDayCount();
+    int count = 0;
+    for (int d = 0; d < day; d++) {
+      int s = teamDaySlots[team * days + d];
+      if (-1 != s && s == teamDaySlots[other * days + d]) count++;
+    }
+    return count;
+  }
+
+  /**
+   * Count a match of the team on a day, once with a <code>sign</code> of
+   * <code>1</code> or uncount it with <code>-1</code>, in the match ups of
+   * the team's matches on later days with other teams of the same match.
+   */
+  private void updateLaterMatchUps(int team, int day, int[] match, int sign) {
+    int days = league.getDayCount();
+    for (int d = day + 1; d < days; d++) {
+      int s = teamDaySlots[team * days + d];
+      if (-1 == s) continue;
+      int met = 0;
+      for (int other : match)
+        if (other != team && s == teamDaySlots[other * days + d]) met++;
+      if (0 == met) continue;
+      int before = teamDayMatchUps[team * days + d];
+      int after = before + sign * met;
+      teamDayMatchUps[team * days + d] = after;
+      if (!allByes(slotMatches[s])) totals[SadFaceFactor.MATCH_UP.ordinal()] += after * after - before * before;
+    }
+  }
+
+  /**
+   * Add, with a <code>sign</code> of <code>1</code>, or subtract, with
+   * <code>-1</code>, what the match of a bye in a slot adds to the gym, time
+   * and court totals: if the match is charged, the bye's matches in the same
+   * place on earlier days, and one for each charged match of the bye in the
+   * same place on a later day. The bye must not be recorded as playing on the
+   * slot's day.
+   */
+  private void addByeTotals(int team, int slot, boolean charged, int sign) {
+    int days = league.getDayCount();
+    int day = league.getSlotDay(slot);
+    for (int d = 0; d < days; d++) {
+      int s = teamDaySlots[team * days + d];
+      if (-1 == s || d == day || (d < day ? !charged : allByes(slotMatches[s]))) continue;
+      if (league.getSlotGym(s) == league.getSlotGym(slot)) totals[SadFaceFactor.GYM.ordinal()] += sign;
+      if (league.getSlotTime(s) == league.getSlotTime(slot)) totals[SadFaceFactor.TIME.ordinal()] += sign;
+      if (league.getSlotCourt(s) == league.getSlotCourt(slot)) totals[SadFaceFactor.COURT.ordinal()] += sign;
+    }
+  }
+
+  private boolean allByes(int[] match) {
+    for (int t : match)
+      if (!league.isBye(t)) return false;
+    return true;
+  }
+
+  private boolean isByeMatch(int[] match) {
+    int byes = 0;
+    for (int t : match)
+      if (league.isBye(t)) byes++;
+    return 0 != byes && match.length != byes;
+  }
+
+  /**
+   * @return the number of matches of the given tier in the same gym and on the
+   *         same day as the given slot
+   */
+  int getSameTierMatches(int slot, int tier) {
+    return tierCounts[tierIndex(slot, tier)];
+  }
+
+  private int tierIndex(int slot, int tier) {
+    return (league.getSlotDay(slot) * league.getGymCount() + league.getSlotGym(slot)) * league.getTierCount() + tier;
+  }
+
+  /**
+   * @return the total sad faces produced by the given factor across every
+   *         match in the state
+   */
+  long getTotalSadFaces(SadFaceFactor factor) {
+    return totals[factor.ordinal()];
+  }
+
+  /**
+   * @param weights
+   *          the weight of each built-in factor, indexed by factor ordinal
+   * @return the weighted sum of the totals of every factor, built-in and
+   *         registered
+   */
+  long getTotalSadFaces(int[] weights) {
+    long sadFaces = 0;
+    for (int i = 0; i < totals.length; i++)
+      sadFaces += weights[i] * totals[i];
+    for (int i = 0; i < scorers.length; i++)
+      sadFaces += scorerWeights[i] * scorers[i].getTotalSadFaces();
+    return sadFaces;
+  }
+
+  /**
+   * @param weights
+   *          the weight of each built-in factor, indexed by factor ordinal
+   * @return a scorer of the weighted built-in factors which adds committed
+   *         matches to this state and scores candidates from it
+   */
+  SadFaceScorer asScorer(final int[] weights) {
+    return new SadFaceScorer() {
+
+      @Override
+      public void onMatchCommitted(Match match) {
+        add(league.getSlotId(match.getSlot()), league.getTeamIds(match.getTeams()));
+      }
+
+      @Override
+      public void onMatchRemoved(Match match) {
+        remove(league.getSlotId(match.getSlot()), league.getTeamIds(match.getTeams()));
+      }
+
+      @Override
+      public int score(ImmutableSet<Team> candidate, Slot slot, int limit) {
+        int s = league.getSlotId(slot);
+        int[] match = league.getTeamIds(candidate);
+        long sadFaces = 0;
+        for (SadFaceFactor f : SadFaceFactor.values()) {
+          int weight = weights[f.ordinal()];
+          if (0 == weight) continue;
+          if (sadFaces >= limit) break;
+          sadFaces += (long) weight * f.getSadFaces(s, match, ScoringState.this, (int) ((limit - sadFaces + weight - 1) / weight));
+        }
+        return (int) Math.min(sadFaces, limit);
+      }
+
+      @Override
+      public long getTotalSadFaces() {
+        return ScoringState.this.getTotalSadFaces(weights);
+      }
+    };
+  }
+
+  /**
+   * Add the weighted sad faces of the registered factors for a candidate to
+   * those already counted, stopping once the limit is reached. Each scorer is
+   * given as its limit the unweighted sad faces which would reach the limit,
+   * and the result is at most the limit, so a scorer returning any value not
+   * less than its limit cannot overflow the sum.
+   */
+  int getScorerSadFaces(int slot, int[] match, int sadFaces, int limit) {
+    if (0 == scorers.length || sadFaces >= limit) return sadFaces;
+    ImmutableSet<Team> teams = league.getTeams(match);
+    Slot s = league.getSlot(slot);
+    long total = sadFaces;
+    for (int i = 0; i < scorers.length && total < limit; i++) {
+      int weight = scorerWeights[i];
+      if (0 == weight) continue;
+      int remaining = (int) ((limit - total + weight - 1) / weight);
+      total += (long) weight * scorers[i].score(teams, s, remaining);
+    }
+    return (int) Math.min(total, limit);
+  }
+
+  int getGymCount(int team, int gym) {
+    return gymCounts[team * league.getGymCount() + gym];
+  }
+
+  int getTimeCount(int team, int time) {
+    return timeCounts[team * league.getTimeCount() + time];
+  }
+
+  int getCourtCount(int team, int court) {
+    return courtCounts[team * league.getCourtCount() + court];
+  }
+
+  int getMatchUpCount(int team, int other) {
+    return team < other ? matchUpCounts[matchUpIndex(team, other)] : matchUpCounts[matchUpIndex(other, team)];
+  }
+
+  private static int matchUpIndex(int lesser, int greater) {
+    return greater * (greater - 1) / 2 + lesser;
+  }
+}
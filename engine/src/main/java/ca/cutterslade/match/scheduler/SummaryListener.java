@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * A {@link SchedulerListener} which totals the events it receives, for
+ * printing once scheduling is complete. Totals are summed over every run of a
+ * portfolio.
+ *
+ * @author W.F. Hartford
+ */
+public final class SummaryListener implements SchedulerListener {
+
+  private final Map<SadFaceFactor, Long> factorNanos = Maps.newEnumMap(SadFaceFactor.class);
+
+  private long candidates;
+
+  private long generationNanos;
+
+  private int days;
+
+  private long dayNanos;
+
+  private long slowestDayNanos;
+
+  private Day slowestDay;
+
+  private long slots;
+
+  private long selectionNanos;
+
+  private long scored;
+
+  private long pruned;
+
+  private long moves;
+
+  private long change;
+
+  private long improvementNanos;
+
+  @Override
+  public synchronized void candidatesGenerated(int candidates, long nanos) {
+    this.candidates += candidates;
+    this.generationNanos += nanos;
+  }
+
+  @Override
+  public void dayStarted(Day day) {}
+
+  @Override
+  public synchronized void matchSelected(Slot slot, ImmutableSet<Team> teams, int sadFaces, int scored, int pruned, long nanos) {
+    this.slots++;
+    this.selectionNanos += nanos;
+    this.scored += scored;
+    this.pruned += pruned;
+  }
+
+  @Override
+  public synchronized void dayFinished(Day day, long nanos, ImmutableMap<SadFaceFactor, Long> factorNanos) {
+    this.days++;
+    this.dayNanos += nanos;
+    if (nanos > slowestDayNanos) {
+      slowestDayNanos = nanos;
+      slowestDay = day;
+    }
+    for (Map.Entry<SadFaceFactor, Long> e : factorNanos.entrySet()) {
+      Long total = this.factorNanos.get(e.getKey());
+      this.factorNanos.put(e.getKey(), (null == total ? 0 : total.longValue()) + e.getValue().longValue());
+    }
+  }
+
+  @Override
+  public synchronized void improvementFinished(long moves, long change, long nanos) {
+    this.moves += moves;
+    this.change += change;
+    this.improvementNanos += nanos;
+  }
+
+  public synchronized String getSummary() {
+    final StringWriter w = new StringWriter();
+    final PrintWriter p = new PrintWriter(w);
+    p.printf("Candidate generation: %d candidates in %d ms%n", candidates, millis(generationNanos));
+    p.printf("Days: %d in %d ms", days, millis(dayNanos));
+    if (null != slowestDay) p.printf(", slowest %s in %d ms", slowestDay.getName(), millis(slowestDayNanos));
+    p.println();
+    p.printf("Slots: %d in %d ms, %d candidates scored, %d pruned%n", slots, millis(selectionNanos), scored, pruned);
+    for (Map.Entry<SadFaceFactor, Long> e : factorNanos.entrySet())
+      p.printf("  %-12s %8d ms%n", e.getKey(), millis(e.getValue().longValue()));
+    if (0 != moves) p.printf("Local search: %d moves in %d ms, %d sad faces%n", moves, millis(improvementNanos), change);
+    p.close();
+    return w.toString();
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ca.cutterslade.match.scheduler;
+
+import java.util.Arrays;
+
+/**
+ * Operations on sets of team ids held as <code>long[]</code> bitsets, where
+ * team <code>t</code> is bit <code>t % 64</code> of word <code>t / 64</code>.
+ * All bitsets used together must have been created for the same number of
+ * teams.
+ *
+ * @author W.F. Hartford
+ */
+final class TeamBits {
+
+  private TeamBits() {}
+
+  static int words(int teams) {
+    return (teams + 63) >>> 6;
+  }
+
+  /**
+   * @return a bitset with the bits of all <code>teams</code> teams set
+   */
+  static long[] all(int teams) {
+    long[] bits = new long[words(teams)];
+    Arrays.fill(bits, -1L);
+    if (0 != (teams & 63)) bits[bits.length - 1] = (1L << teams) - 1;
+    return bits;
+  }
+
+  static boolean isEmpty(long[] bits) {
+    for (long word : bits)
+      if (0 != word) return false;
+    return true;
+  }
+}
@@ -0,0 +1,93 @@
+package ca.cutterslade.match.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class BatchTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void runTest() throws IOException, InterruptedException, ParseException {
+    File jobFile = folder.newFile("jobs.txt");
+    String pairs = "-t 16 -r 2 -d 6 -m 2 -g 2 -c 2 -z 2";
+    String triples = "-t 10 -r 2 -d 8 -m 2 -g 2 -c 1 -z 3 --random --seed 3";
+    Files.write("# leagues\npairs " + pairs + "\n\ntriples " + triples + "\nbad -t 16\npairs " + pairs + "\n", jobFile, Charsets.UTF_8);
+    File output = new File(folder.getRoot(), "out");
+    List<Batch.Job> jobs = Batch.run(jobFile, output, 2, 0);
+    Assert.assertEquals(4, jobs.size());
+    Assert.assertEquals("pairs", jobs.get(0).getName());
+    Assert.assertEquals("triples", jobs.get(1).getName());
+    Assert.assertNull(jobs.get(0).getError());
+    Assert.assertNull(jobs.get(1).getError());
+    Assert.assertEquals(Main.schedule(Main.parse(pairs.split(" ")), Configuration.DEFAULT_CONFIGURATION).getSadFaces(), jobs.get(0).getSadFaces());
+    Assert.assertTrue(jobs.get(2).getError().startsWith("invalid arguments"));
+    Assert.assertEquals("duplicate league name", jobs.get(3).getError());
+    Assert.assertEquals(expected(pairs), Files.toString(new File(output, "pairs.txt"), Charsets.UTF_8));
+    Assert.assertEquals(expected(triples), Files.toString(new File(output, "triples.txt"), Charsets.UTF_8));
+    Assert.assertFalse(new File(output, "bad.txt").exists());
+    String report = Batch.report(jobs, 0);
+    Assert.assertTrue(report, report.contains("4 leagues, 2 failed"));
+  }
+
+  @Test
+  public void nameTest() throws IOException, InterruptedException {
+    File jobFile = folder.newFile("jobs.txt");
+    String args = " -t 4 -r 1 -d 2 -m 2 -g 1 -c 1 -z 2\n";
+    File outside = new File(folder.getRoot(), "outside");
+    Files.write("../escaped" + args + outside.getAbsolutePath() + args + "a/b" + args + "..." + args, jobFile, Charsets.UTF_8);
+    File output = new File(folder.getRoot(), "out");
+    List<Batch.Job> jobs = Batch.run(jobFile, output, 1, 0);
+    Assert.assertEquals("invalid league name", jobs.get(0).getError());
+    Assert.assertEquals("invalid league name", jobs.get(1).getError());
+    Assert.assertEquals("invalid league name", jobs.get(2).getError());
+    Assert.assertNull(jobs.get(3).getError());
+    Assert.assertFalse(new File(folder.getRoot(), "escaped.txt").exists());
+    Assert.assertFalse(new File(outside.getPath() + ".txt").exists());
+    Assert.assertTrue(new File(output, "....txt").exists());
+  }
+
+  @Test
+  public void countTest() throws ParseException {
+    CommandLine line = new PosixParser().parse(options(), new String[] { "--threads", "3" });
+    Assert.assertEquals(3, Batch.count(line, "threads", 1, 1));
+    Assert.assertEquals(2, Batch.count(line, "queue", 2, 0));
+  }
+
+  @Test(expected = ParseException.class)
+  public void notNumberTest() throws ParseException {
+    Batch.count(new PosixParser().parse(options(), new String[] { "--threads", "x" }), "threads", 1, 1);
+  }
+
+  @Test(expected = ParseException.class)
+  public void tooSmallTest() throws ParseException {
+    Batch.count(new PosixParser().parse(options(), new String[] { "--threads", "0" }), "threads", 1, 1);
+  }
+
+  private static Options options() {
+    Options o = new Options();
+    o.addOption(new Option(null, "threads", true, null));
+    o.addOption(new Option(null, "queue", true, null));
+    return o;
+  }
+
+  private static String expected(String args) throws ParseException, InterruptedException, IOException {
+    CommandLine line = Main.parse(args.split(" "));
+    return Main.output(Main.schedule(line, Main.configuration(line, ExecutionStrategy.sequential())));
+  }
+}
@@ -0,0 +1,54 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CombinationsTest {
+
+  @Test
+  public void orderTest() {
+    List<List<Integer>> expected = ImmutableList.<List<Integer>> of(ImmutableList.of(7, 5, 3), ImmutableList.of(7, 5, 1), ImmutableList.of(7, 3, 1), ImmutableList.of(5, 3, 1));
+    Assert.assertEquals(expected, toLists(new Combinations(new int[] { 7, 5, 3, 1 }, 3)));
+  }
+
+  @Test
+  public void countTest() {
+    for (int n = 0; n < 12; n++)
+      for (int k = 1; k < 6; k++) {
+        List<List<Integer>> combinations = toLists(new Combinations(new int[n], k));
+        Assert.assertEquals(Combinations.count(n, k), combinations.size());
+      }
+    Assert.assertEquals(91390, Combinations.count(40, 4));
+  }
+
+  @Test
+  public void uniqueTest() {
+    int[] elements = new int[10];
+    for (int i = 0; i < elements.length; i++)
+      elements[i] = i;
+    Set<Set<Integer>> unique = Sets.newHashSet();
+    for (List<Integer> c : toLists(new Combinations(elements, 4))) {
+      Assert.assertEquals(4, Sets.newHashSet(c).size());
+      Assert.assertTrue(unique.add(Sets.newHashSet(c)));
+    }
+    Assert.assertEquals(210, unique.size());
+  }
+
+  private static List<List<Integer>> toLists(Combinations combinations) {
+    List<List<Integer>> lists = Lists.newArrayList();
+    for (int[] c : combinations) {
+      List<Integer> list = Lists.newArrayList();
+      for (int e : c)
+        list.add(e);
+      lists.add(list);
+    }
+    return lists;
+  }
+}
@@ -0,0 +1,52 @@
+package ca.cutterslade.match.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class FlightRecorderTest {
+
+  @Test
+  public void eventsTest() throws InterruptedException, IOException {
+    CompiledLeague league = MatchMakerTest.league(16, 2, 2, 2, 2, 10, 2);
+    File file = File.createTempFile("match-scheduler", ".jfr");
+    try {
+      Recording recording = new Recording();
+      try {
+        recording.enable(CandidateGenerationEvent.class).withThreshold(Duration.ZERO);
+        recording.enable(DayEvent.class).withThreshold(Duration.ZERO);
+        recording.enable(BestMatchEvent.class).withThreshold(Duration.ZERO);
+        recording.start();
+        new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, 2, new Executor(true), true).solve();
+        recording.stop();
+        recording.dump(file.toPath());
+      }
+      finally {
+        recording.close();
+      }
+      Map<String, Integer> counts = Maps.newHashMap();
+      for (RecordedEvent e : RecordingFile.readAllEvents(file.toPath())) {
+        String name = e.getEventType().getName();
+        Integer count = counts.get(name);
+        counts.put(name, null == count ? 1 : count + 1);
+        if (name.endsWith("BestMatch")) Assert.assertTrue(0 < e.getInt("candidates"));
+      }
+      Assert.assertEquals(Integer.valueOf(1), counts.get("ca.cutterslade.match.scheduler.CandidateGeneration"));
+      Assert.assertEquals(Integer.valueOf(league.getDayCount()), counts.get("ca.cutterslade.match.scheduler.Day"));
+      Assert.assertEquals(Integer.valueOf(league.getSlotCount()), counts.get("ca.cutterslade.match.scheduler.BestMatch"));
+    }
+    finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.SplittableRandom;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LocalSearchTest {
+
+  @Test
+  public void hillClimbTest() throws InterruptedException {
+    test(MatchMakerTest.league(24, 3, 3, 1, 2, 6, 4), 4, 0);
+  }
+
+  @Test
+  public void annealTest() throws InterruptedException {
+    test(MatchMakerTest.league(10, 2, 2, 1, 2, 8, 3), 3, 50);
+  }
+
+  private void test(CompiledLeague league, int size, double temperature) throws InterruptedException {
+    MatchMaker matchMaker = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, size);
+    int[][] slotMatches = matchMaker.solve();
+    long before = matchMaker.getSadFaces(slotMatches);
+    ScoringState state = new ScoringState(league);
+    for (int s = 0; s < slotMatches.length; s++)
+      state.add(s, slotMatches[s]);
+    int[] weights = new int[SadFaceFactor.values().length];
+    for (SadFaceFactor f : SadFaceFactor.values())
+      weights[f.ordinal()] = f.getDefaultValue();
+    long change = new LocalSearch(league, weights, new SplittableRandom(1), temperature).improve(slotMatches, state, 20000);
+    long after = matchMaker.getSadFaces(slotMatches);
+    Assert.assertEquals(before + change, after);
+    Assert.assertEquals(after, state.getTotalSadFaces(weights));
+    if (0 == temperature) Assert.assertTrue(after <= before);
+    for (int d = 0; d < league.getDayCount(); d++) {
+      boolean[] played = new boolean[league.getTeamCount()];
+      for (int s : league.getDaySlots(d)) {
+        int tier = league.getTeamTier(slotMatches[s][0]);
+        for (int t : slotMatches[s]) {
+          Assert.assertFalse(played[t]);
+          Assert.assertEquals(tier, league.getTeamTier(t));
+          played[t] = true;
+        }
+      }
+      for (boolean p : played)
+        Assert.assertTrue(p);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class MatchMakerTest {
+
+  private static final Configuration PARALLEL_CANDIDATES = Configuration.builder().parallelCandidates(true).build();
+
+  private static final Configuration ANCHORED_SEARCH = Configuration.builder().anchoredSearch(true).build();
+
+  @Test
+  public void pairsTest() throws InterruptedException {
+    test(league(16, 2, 2, 2, 2, 10, 2), 2);
+  }
+
+  @Test
+  public void triplesWithByesTest() throws InterruptedException {
+    test(league(10, 2, 2, 1, 2, 8, 3), 3);
+  }
+
+  @Test
+  public void quadsTest() throws InterruptedException {
+    test(league(24, 3, 3, 1, 2, 6, 4), 4);
+  }
+
+  @Test
+  public void parallelCandidatesTest() throws InterruptedException {
+    CompiledLeague league = league(18, 1, 2, 1, 3, 6, 3);
+    ImmutableSet<Match> sequential = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, 3).getMatches();
+    Assert.assertEquals(sequential, new MatchMaker(PARALLEL_CANDIDATES, league, 3).getMatches());
+    Assert.assertEquals(sequential, new MatchMaker(PARALLEL_CANDIDATES, league, 3, false).getMatches());
+  }
+
+  @Test
+  public void anchoredSearchTest() throws InterruptedException {
+    CompiledLeague league = league(24, 3, 3, 1, 2, 6, 4);
+    assertComplete(league, new MatchMaker(ANCHORED_SEARCH, league, 4).solve());
+    ImmutableSet<Match> sequential = new MatchMaker(ANCHORED_SEARCH, league, 4).getMatches();
+    Assert.assertEquals(league.getSlotCount(), sequential.size());
+    Configuration parallel = Configuration.builder(ANCHORED_SEARCH).parallelCandidates(true).build();
+    Assert.assertEquals(sequential, new MatchMaker(parallel, league, 4).getMatches());
+    Assert.assertEquals(sequential, new MatchMaker(ANCHORED_SEARCH, league, 4, false).getMatches());
+  }
+
+  @Test
+  public void deadlineTest() throws InterruptedException {
+    CompiledLeague league = league(24, 3, 3, 1, 2, 6, 4);
+    ImmutableSet<Match> expected = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, 4).getMatches();
+    Configuration generous = Configuration.builder().deadline(1, TimeUnit.HOURS).build();
+    MatchMaker matchMaker = new MatchMaker(generous, league, 4);
+    Assert.assertEquals(expected, matchMaker.getMatches());
+    Assert.assertFalse(matchMaker.isDegraded());
+    Configuration improved = Configuration.builder().improvementMoves(Long.MAX_VALUE).build();
+    for (Configuration config : ImmutableSet.of(Configuration.DEFAULT_CONFIGURATION, PARALLEL_CANDIDATES, ANCHORED_SEARCH, improved)) {
+      matchMaker = new MatchMaker(config, league, 4);
+      assertComplete(league, matchMaker.solve(null, System.nanoTime(), new SplittableRandom()));
+      Assert.assertTrue(matchMaker.isDegraded());
+    }
+    matchMaker = new MatchMaker(improved, league, 4);
+    assertComplete(league, matchMaker.solve(null, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200), new SplittableRandom()));
+    Assert.assertTrue(matchMaker.isDegraded());
+  }
+
+  @Test
+  public void listenerTest() throws InterruptedException {
+    CompiledLeague league = league(16, 2, 2, 2, 2, 10, 2);
+    final int[] events = new int[3];
+    SchedulerListener listener = new SchedulerListener() {
+
+      @Override
+      public void candidatesGenerated(int candidates, long nanos) {
+        events[0] += candidates;
+      }
+
+      @Override
+      public void dayStarted(Day day) {}
+
+      @Override
+      public void matchSelected(Slot slot, ImmutableSet<Team> teams, int sadFaces, int scored, int pruned, long nanos) {
+        Assert.assertTrue(0 < scored);
+        Assert.assertTrue(pruned < scored);
+        events[1]++;
+      }
+
+      @Override
+      public void dayFinished(Day day, long nanos, ImmutableMap<SadFaceFactor, Long> factorNanos) {
+        Assert.assertEquals(SadFaceFactor.values().length, factorNanos.size());
+        events[2]++;
+      }
+
+      @Override
+      public void improvementFinished(long moves, long change, long nanos) {}
+    };
+    ImmutableSet<Match> expected = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, 2).getMatches();
+    Configuration config = Configuration.builder().listener(listener).build();
+    Assert.assertEquals(expected, new MatchMaker(config, league, 2, new Executor(true), true).getMatches());
+    Assert.assertEquals(2 * Combinations.count(8, 2), events[0]);
+    Assert.assertEquals(league.getSlotCount(), events[1]);
+    Assert.assertEquals(league.getDayCount(), events[2]);
+  }
+
+  @Test
+  public void prunedTest() throws InterruptedException {
+    CompiledLeague league = league(16, 2, 2, 2, 2, 10, 2);
+    List<Integer> sequential = pruned(league, new Executor(true));
+    Executor executor = new Executor(false);
+    try {
+      Assert.assertEquals(sequential, pruned(league, executor));
+    }
+    finally {
+      executor.shutdown();
+    }
+    int total = 0;
+    for (int p : sequential)
+      total += p;
+    Assert.assertTrue(0 < total);
+  }
+
+  /**
+   * @return the number of candidates pruned for each slot
+   */
+  private static List<Integer> pruned(CompiledLeague league, Executor executor) throws InterruptedException {
+    final List<Integer> pruned = Lists.newArrayList();
+    SchedulerListener listener = new SchedulerListener() {
+
+      @Override
+      public void candidatesGenerated(int candidates, long nanos) {}
+
+      @Override
+      public void dayStarted(Day day) {}
+
+      @Override
+      public void matchSelected(Slot slot, ImmutableSet<Team> teams, int sadFaces, int scored, int p, long nanos) {
+        pruned.add(p);
+      }
+
+      @Override
+      public void dayFinished(Day day, long nanos, ImmutableMap<SadFaceFactor, Long> factorNanos) {}
+
+      @Override
+      public void improvementFinished(long moves, long change, long nanos) {}
+    };
+    new MatchMaker(Configuration.builder().listener(listener).build(), league, 2, executor, true).getMatches();
+    return pruned;
+  }
+
+  private static void assertComplete(CompiledLeague league, int[][] slotMatches) {
+    for (int d = 0; d < league.getDayCount(); d++) {
+      boolean[] played = new boolean[league.getTeamCount()];
+      for (int s : league.getDaySlots(d))
+        for (int t : slotMatches[s]) {
+          Assert.assertFalse(played[t]);
+          played[t] = true;
+        }
+      for (boolean p : played)
+        Assert.assertTrue(p);
+    }
+  }
+
+  private void test(CompiledLeague league, int size) throws InterruptedException {
+    ImmutableSet<Match> scanned = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, size, false).getMatches();
+    ImmutableSet<Match> incremental = new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, size, true).getMatches();
+    Assert.assertEquals(league.getSlotCount(), scanned.size());
+    Assert.assertEquals(scanned, incremental);
+  }
+
+  static CompiledLeague league(int nTeams, int nTiers, int nGyms, int nCourts, int nTimes, int nDays, int size) {
+    ImmutableSet<Gym> gyms = Gym.forNames(setOf(nGyms));
+    ImmutableSet<Slot> slots = Slot.forNames(Time.forNames(setOf(nTimes)), Court.forNames(setOf(nCourts), gyms), Day.forNames(setOf(nDays)));
+    ImmutableSet<Tier> tiers = Tier.forNames(setOf(nTiers));
+    int possibleTeams = nGyms * nCourts * nTimes * size;
+    ImmutableSet<Team> teams = Team.forNames(setOf(nTeams), tiers, possibleTeams / nTiers);
+    ImmutableSet.Builder<Team> b = ImmutableSet.builder();
+    for (Tier tier : tiers) {
+      ImmutableSet<Team> tierTeams = ImmutableSet.copyOf(tier.getTeams(teams));
+      b.addAll(tierTeams);
+      for (int i = 0, n = possibleTeams / nTiers - tierTeams.size(); i < n; i++)
+        b.add(new Team("B" + i, tier));
+    }
+    return new CompiledLeague(slots, b.build());
+  }
+
+  private static ImmutableSet<String> setOf(int n) {
+    ImmutableSet.Builder<String> b = ImmutableSet.builder();
+    for (int i = 0; i < n; i++)
+      b.add(String.valueOf(i));
+    return b.build();
+  }
+}
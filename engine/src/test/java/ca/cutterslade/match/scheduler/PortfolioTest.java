@@ -0,0 +1,23 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PortfolioTest {
+
+  @Test
+  public void bestRunTest() throws InterruptedException {
+    CompiledLeague league = MatchMakerTest.league(16, 2, 2, 2, 2, 6, 2);
+    Configuration config = Configuration.builder().portfolioRuns(4).build();
+    Portfolio portfolio = new Portfolio(config, league, 2).run();
+    Assert.assertEquals(4, portfolio.getSadFaces().size());
+    Assert.assertEquals(league.getSlotCount(), portfolio.getMatches().size());
+    int[][] slotMatches = new int[league.getSlotCount()][];
+    for (Match m : portfolio.getMatches())
+      slotMatches[league.getSlotId(m.getSlot())] = league.getTeamIds(m.getTeams());
+    long sadFaces = new MatchMaker(config, league, 2).getSadFaces(slotMatches);
+    Assert.assertEquals(Collections.min(portfolio.getSadFaces()).longValue(), sadFaces);
+  }
+}
@@ -0,0 +1,190 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class SadFaceScorerTest {
+
+  private static final class CountingScorer implements SadFaceScorer {
+
+    final Set<Match> committed = Sets.newHashSet();
+
+    int removals;
+
+    @Override
+    public void onMatchCommitted(Match match) {
+      Assert.assertTrue(committed.add(match));
+    }
+
+    @Override
+    public void onMatchRemoved(Match match) {
+      Assert.assertTrue(committed.remove(match));
+      removals++;
+    }
+
+    @Override
+    public int score(ImmutableSet<Team> candidate, Slot slot, int limit) {
+      return 0;
+    }
+
+    @Override
+    public long getTotalSadFaces() {
+      return committed.size();
+    }
+  }
+
+  private static final class CountingFactory implements SadFaceScorer.Factory {
+
+    final List<CountingScorer> scorers = Lists.newArrayList();
+
+    @Override
+    public SadFaceScorer newScorer(ImmutableSet<Slot> slots, ImmutableSet<Team> teams) {
+      CountingScorer scorer = new CountingScorer();
+      scorers.add(scorer);
+      return scorer;
+    }
+  }
+
+  @Test
+  public void builtInFactorTest() throws InterruptedException {
+    Configuration registered = Configuration.builder().factor(SadFaceFactor.GYM, 7).build();
+    Configuration weighted = Configuration.builder().factors(ImmutableMap.of(SadFaceFactor.GYM, 7)).build();
+    Assert.assertEquals(weighted, registered);
+    Assert.assertTrue(registered.getScorers().isEmpty());
+    Assert.assertEquals(new Scheduler(weighted, 24, 2, 2, 2, 3, 6, 2).getMatches(), new Scheduler(registered, 24, 2, 2, 2, 3, 6, 2).getMatches());
+  }
+
+  @Test
+  public void builtInScorerTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.builder().random(true).seed(11).improvementMoves(5000).build(), 20, 2, 2, 2, 3, 6, 3);
+    Map<SadFaceFactor, Integer> weights = Maps.newEnumMap(SadFaceFactor.class);
+    for (SadFaceFactor f : SadFaceFactor.values())
+      weights.put(f, f.getDefaultValue());
+    SadFaceScorer all = SadFaceFactor.newScorer(s.getSlots(), s.getTeams(), weights);
+    List<SadFaceScorer> each = Lists.newArrayList();
+    for (SadFaceFactor f : SadFaceFactor.values())
+      each.add(f.newScorer(s.getSlots(), s.getTeams()));
+    for (Match m : s.getMatches()) {
+      all.onMatchCommitted(m);
+      for (SadFaceScorer scorer : each)
+        scorer.onMatchCommitted(m);
+    }
+    Assert.assertEquals(s.getSadFaces(), all.getTotalSadFaces());
+    long total = 0;
+    for (SadFaceFactor f : SadFaceFactor.values())
+      total += f.getDefaultValue() * each.get(f.ordinal()).getTotalSadFaces();
+    Assert.assertEquals(s.getSadFaces(), total);
+    Match last = s.getMatches().asList().get(0);
+    all.onMatchRemoved(last);
+    List<Match> others = Lists.newArrayList(s.getMatches());
+    others.remove(last);
+    int expected = 0;
+    for (SadFaceFactor f : SadFaceFactor.values())
+      expected += f.getDefaultValue() * f.getSadFaces(last.getSlot(), last.getTeams(), others, Integer.MAX_VALUE);
+    Assert.assertEquals(expected, all.score(last.getTeams(), last.getSlot(), Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void hooksTest() throws InterruptedException {
+    Scheduler plain = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    CountingFactory factory = new CountingFactory();
+    Scheduler s = new Scheduler(Configuration.builder().factor(factory, 3).build(), 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(plain.getMatches(), s.getMatches());
+    Assert.assertEquals(s.getMatches(), factory.scorers.get(0).committed);
+    Assert.assertEquals(plain.getSadFaces() + 3 * s.getMatches().size(), s.getSadFaces());
+  }
+
+  @Test
+  public void hooksImprovedTest() throws InterruptedException {
+    CountingFactory factory = new CountingFactory();
+    Scheduler s = new Scheduler(Configuration.builder().factor(factory, 1).improvementMoves(2000).build(), 16, 2, 2, 2, 2, 6, 2);
+    CountingScorer scorer = factory.scorers.get(0);
+    Assert.assertTrue(0 < scorer.removals);
+    Assert.assertEquals(s.getMatches(), scorer.committed);
+  }
+
+  private static final class FixedFactory implements SadFaceScorer.Factory {
+
+    private final int sadFaces;
+
+    final List<Integer> limits = Lists.newArrayList();
+
+    /**
+     * @param sadFaces
+     *          the sad faces of every candidate, or <code>-1</code> for the
+     *          limit the scorer is given
+     */
+    FixedFactory(int sadFaces) {
+      this.sadFaces = sadFaces;
+    }
+
+    @Override
+    public SadFaceScorer newScorer(ImmutableSet<Slot> slots, ImmutableSet<Team> teams) {
+      return new SadFaceScorer() {
+
+        @Override
+        public void onMatchCommitted(Match match) {}
+
+        @Override
+        public void onMatchRemoved(Match match) {}
+
+        @Override
+        public int score(ImmutableSet<Team> candidate, Slot slot, int limit) {
+          limits.add(limit);
+          return -1 == sadFaces ? limit : sadFaces;
+        }
+
+        @Override
+        public long getTotalSadFaces() {
+          return 0;
+        }
+      };
+    }
+  }
+
+  @Test
+  public void limitTest() {
+    CompiledLeague league = MatchMakerTest.league(8, 1, 1, 1, 2, 2, 2);
+    FixedFactory atLimit = new FixedFactory(-1);
+    FixedFactory two = new FixedFactory(2);
+    ScoringState state = new ScoringState(league, ImmutableMap.<SadFaceScorer.Factory, Integer> of(two, 3, atLimit, 7));
+    int[] match = league.getTierTeams(0);
+    match = new int[] { match[0], match[1] };
+    Assert.assertEquals(Integer.MAX_VALUE, state.getScorerSadFaces(0, match, 5, Integer.MAX_VALUE));
+    Assert.assertEquals(Integer.valueOf((Integer.MAX_VALUE - 5 + 2) / 3), two.limits.get(0));
+    Assert.assertEquals(Integer.valueOf((Integer.MAX_VALUE - 11 + 6) / 7), atLimit.limits.get(0));
+    Assert.assertEquals(20, state.getScorerSadFaces(0, match, 5, 20));
+    Assert.assertEquals(Integer.valueOf(2), atLimit.limits.get(1));
+    Assert.assertEquals(8, state.getScorerSadFaces(0, match, 8, 8));
+    Assert.assertEquals(2, atLimit.limits.size());
+  }
+
+  @Test
+  public void saturatedTest() throws InterruptedException {
+    for (ExecutionStrategy strategy : new ExecutionStrategy[] { ExecutionStrategy.sequential(), ExecutionStrategy.commonPool(), ExecutionStrategy.threadPool() }) {
+      Configuration config = Configuration.builder().factor(new FixedFactory(Integer.MAX_VALUE / 2), 1000).parallelCandidates(true).executionStrategy(strategy).build();
+      Scheduler s = new Scheduler(config, 16, 2, 2, 2, 2, 6, 2);
+      Assert.assertEquals(s.getSlots().size(), s.getMatches().size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeWeightTest() {
+    Configuration.builder().factor(new FixedFactory(0), -1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullFactoryTest() {
+    Configuration.builder().factor(null, 1);
+  }
+}
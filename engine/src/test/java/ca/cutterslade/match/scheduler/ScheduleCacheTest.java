@@ -0,0 +1,212 @@
+package ca.cutterslade.match.scheduler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class ScheduleCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void serializationTest() throws IOException, InterruptedException, ClassNotFoundException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 10, 2, 2, 1, 2, 8, 3);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(s);
+    out.close();
+    Scheduler copy = (Scheduler) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(copy.getMatches()));
+    Assert.assertEquals(s.getSadFaces(), copy.getSadFaces());
+    for (Day day : s.getDays())
+      for (Time time : s.getTimes())
+        Assert.assertEquals(s.getMatches(day, time), copy.getMatches(day, time));
+    Tier tier = copy.getTiers().iterator().next();
+    Assert.assertEquals(copy.getTeams().size() / copy.getTiers().size(), Lists.newArrayList(tier.getTeams(copy.getTeams())).size());
+  }
+
+  @Test
+  public void hitTest() throws IOException, InterruptedException {
+    ScheduleCache cache = new ScheduleCache(folder.getRoot(), Long.MAX_VALUE);
+    Configuration config = Configuration.builder().random(true).seed(5).build();
+    Scheduler s = cache.getScheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(0, cache.getHits());
+    Configuration other = Configuration.builder(config).executionStrategy(ExecutionStrategy.sequential()).deadline(1, TimeUnit.HOURS).build();
+    Scheduler cached = cache.getScheduler(other, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(cached.getMatches()));
+    cache.getScheduler(Configuration.builder(config).seed(6).build(), 16, 2, 2, 2, 2, 6, 2);
+    cache.getScheduler(config, 16, 2, 2, 2, 2, 8, 2);
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(3, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void equalsTest() {
+    Configuration config = Configuration.builder().random(true).seed(5).build();
+    Configuration other = Configuration.builder(config).executionStrategy(ExecutionStrategy.sequential()).listener(new SummaryListener()).build();
+    Assert.assertEquals(config, other);
+    Assert.assertEquals(config.hashCode(), other.hashCode());
+    Assert.assertFalse(config.equals(Configuration.builder(config).seed(6).build()));
+  }
+
+  private static final class MatchCountFactory implements SadFaceScorer.Factory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public SadFaceScorer newScorer(ImmutableSet<Slot> slots, ImmutableSet<Team> teams) {
+      return new SadFaceScorer() {
+
+        private int matches;
+
+        @Override
+        public void onMatchCommitted(Match match) {
+          matches++;
+        }
+
+        @Override
+        public void onMatchRemoved(Match match) {
+          matches--;
+        }
+
+        @Override
+        public int score(ImmutableSet<Team> candidate, Slot slot, int limit) {
+          return 0;
+        }
+
+        @Override
+        public long getTotalSadFaces() {
+          return matches;
+        }
+      };
+    }
+  }
+
+  @Test
+  public void factorsTest() throws IOException, InterruptedException, ClassNotFoundException {
+    ScheduleCache cache = new ScheduleCache(folder.getRoot(), Long.MAX_VALUE);
+    Configuration config = Configuration.builder().factor(new MatchCountFactory(), 1).build();
+    Scheduler s = cache.getScheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Scheduler cached = cache.getScheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertSame(config, cached.getConfig());
+    ScheduleChange change = ScheduleChange.addDay("x");
+    Assert.assertEquals(s.reschedule(ImmutableSet.<Day> of(), change).getMatches(), cached.reschedule(ImmutableSet.<Day> of(), change).getMatches());
+    Scheduler copy = copy(s);
+    Assert.assertEquals(s.reschedule(ImmutableSet.<Day> of(), change).getMatches(), copy.withConfig(config).reschedule(ImmutableSet.<Day> of(), change).getMatches());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void lostFactorsTest() throws IOException, InterruptedException, ClassNotFoundException {
+    Scheduler s = new Scheduler(Configuration.builder().factor(new MatchCountFactory(), 1).build(), 16, 2, 2, 2, 2, 6, 2);
+    copy(s).reschedule(ImmutableSet.<Day> of(), ScheduleChange.addDay("x"));
+  }
+
+  private static Scheduler copy(Scheduler s) throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(s);
+    out.close();
+    return (Scheduler) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+  }
+
+  private static final class Tripwire implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static boolean read;
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      read = true;
+    }
+  }
+
+  @Test
+  public void filterTest() throws IOException, InterruptedException {
+    ScheduleCache cache = new ScheduleCache(folder.getRoot(), Long.MAX_VALUE);
+    Scheduler s = cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    File[] files = folder.getRoot().listFiles();
+    Assert.assertEquals(1, files.length);
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(files[0]));
+    out.writeObject(new Tripwire());
+    out.close();
+    Scheduler again = cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertFalse(Tripwire.read);
+    Assert.assertEquals(0, cache.getHits());
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(again.getMatches()));
+    cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void corruptTest() throws IOException, InterruptedException {
+    ScheduleCache cache = new ScheduleCache(folder.getRoot(), Long.MAX_VALUE);
+    Scheduler s = cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    File[] files = folder.getRoot().listFiles();
+    Assert.assertEquals(1, files.length);
+    // every day is written as the first, so the maps keyed by day cannot be
+    // read back
+    final Day first = s.getDays().iterator().next();
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(files[0])) {
+      {
+        enableReplaceObject(true);
+      }
+
+      @Override
+      protected Object replaceObject(Object obj) {
+        return obj instanceof Day ? new Day(first.getName()) : obj;
+      }
+    };
+    out.writeObject(s);
+    out.close();
+    Scheduler again = cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(0, cache.getHits());
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(again.getMatches()));
+    cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void unseededTest() throws IOException, InterruptedException {
+    ScheduleCache cache = new ScheduleCache(folder.getRoot(), Long.MAX_VALUE);
+    cache.getScheduler(Configuration.RANDOM_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    cache.getScheduler(Configuration.RANDOM_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(0, cache.getHits());
+    Assert.assertEquals(0, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void evictionTest() throws IOException, InterruptedException {
+    ScheduleCache unbounded = new ScheduleCache(folder.getRoot(), Long.MAX_VALUE);
+    unbounded.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    File[] files = folder.getRoot().listFiles();
+    Assert.assertEquals(1, files.length);
+    long size = files[0].length();
+    Assert.assertTrue(files[0].setLastModified(files[0].lastModified() - 60000));
+    ScheduleCache cache = new ScheduleCache(folder.getRoot(), 2 * size);
+    cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 5, 2);
+    Assert.assertEquals(2, folder.getRoot().list().length);
+    cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 4, 2);
+    Assert.assertEquals(2, folder.getRoot().list().length);
+    Assert.assertFalse(files[0].exists());
+    cache.getScheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 5, 2);
+    Assert.assertEquals(1, cache.getHits());
+  }
+}
@@ -0,0 +1,138 @@
+package ca.cutterslade.match.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class ScheduleFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void roundTripTest() throws IOException, InterruptedException {
+    Scheduler s = new Scheduler(Configuration.builder().random(true).seed(3).build(), 16, 2, 2, 2, 2, 6, 2);
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(s, file);
+    ScheduleFile f = ScheduleFile.open(file);
+    Assert.assertEquals(Lists.newArrayList(s.getGyms()), f.getGyms());
+    Assert.assertEquals(Lists.newArrayList(s.getCourts()), f.getCourts());
+    Assert.assertEquals(Lists.newArrayList(s.getTimes()), f.getTimes());
+    Assert.assertEquals(Lists.newArrayList(s.getDays()), f.getDays());
+    Assert.assertEquals(Lists.newArrayList(s.getTiers()), f.getTiers());
+    Assert.assertEquals(Lists.newArrayList(s.getTeams()), f.getTeams());
+    Assert.assertEquals(s.getMatches().size(), f.getMatchCount());
+    Assert.assertEquals(s.getMatches(), ImmutableSet.copyOf(f.getMatches()));
+    Assert.assertEquals(s.getSeed(), f.getSeed());
+    Assert.assertEquals(s.getSadFaces(), f.getSadFaces());
+    Assert.assertEquals(s.isDegraded(), f.isDegraded());
+    for (Day day : s.getDays()) {
+      Assert.assertEquals(s.getMatches(day), ImmutableSet.copyOf(f.getMatches(day)));
+      for (Time time : s.getTimes()) {
+        Assert.assertEquals(s.getMatches(day, time), ImmutableSet.copyOf(f.getMatches(day, time)));
+        for (Court court : s.getCourts())
+          Assert.assertEquals(s.getMatch(day, time, court), f.getMatch(day, time, court));
+      }
+    }
+    Assert.assertNull(f.getMatch(new Day("x"), s.getTimes().iterator().next(), s.getCourts().iterator().next()));
+  }
+
+  @Test
+  public void namesTest() throws IOException, InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, ImmutableSet.of("\u00c4mber", "Blue", "Cyan", "Dune"), ImmutableSet.of("Open"), ImmutableSet.of("North"), ImmutableSet.of("1"), ImmutableSet.of("7pm", "8pm"), ImmutableSet.of("Mon", "Tue"), 2);
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(s, file);
+    ScheduleFile f = ScheduleFile.open(file);
+    Assert.assertEquals("\u00c4mber", f.getTeams().get(0).getName());
+    Assert.assertEquals(s.getMatches(), ImmutableSet.copyOf(f.getMatches()));
+  }
+
+  @Test(expected = IOException.class)
+  public void notScheduleTest() throws IOException {
+    File file = folder.newFile("other.bin");
+    Files.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 }, file);
+    ScheduleFile.open(file);
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedTest() throws IOException, InterruptedException {
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2), file);
+    byte[] bytes = Files.toByteArray(file);
+    Files.write(Arrays.copyOf(bytes, bytes.length - 4), file);
+    ScheduleFile.open(file);
+  }
+
+  @Test
+  public void countTest() throws IOException, InterruptedException {
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2), file);
+    byte[] bytes = Files.toByteArray(file);
+    ByteBuffer.wrap(bytes).putInt(28, Integer.MAX_VALUE);
+    assertCorrupt(bytes, file);
+  }
+
+  @Test
+  public void teamTest() throws IOException, InterruptedException {
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2), file);
+    byte[] bytes = Files.toByteArray(file);
+    ByteBuffer.wrap(bytes).putInt(bytes.length - 4, 16);
+    assertCorrupt(bytes, file);
+  }
+
+  @Test
+  public void slotTest() throws IOException, InterruptedException {
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2), file);
+    byte[] bytes = Files.toByteArray(file);
+    ByteBuffer.wrap(bytes).putInt(bytes.length - 12, 0);
+    assertCorrupt(bytes, file);
+  }
+
+  @Test
+  public void duplicateDayTest() throws IOException, InterruptedException {
+    File file = folder.newFile("schedule.bin");
+    ScheduleFile.write(new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2), file);
+    byte[] bytes = Files.toByteArray(file);
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    in.position(28);
+    for (int i = 0, n = in.getInt(); i < n; i++)
+      skip(in, 1);
+    skip(in, 4);
+    skip(in, 8);
+    skip(in, 4);
+    int days = in.position() + 4;
+    in.putInt(days + 4, in.getInt(days));
+    assertCorrupt(bytes, file);
+  }
+
+  /**
+   * Skip a count and that many items of the given size.
+   */
+  private static void skip(ByteBuffer in, int bytesEach) {
+    int count = in.getInt();
+    in.position(in.position() + count * bytesEach);
+  }
+
+  private static void assertCorrupt(byte[] bytes, File file) throws IOException {
+    Files.write(bytes, file);
+    try {
+      ScheduleFile.open(file);
+      Assert.fail();
+    }
+    catch (IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains(file.toString()));
+    }
+  }
+}
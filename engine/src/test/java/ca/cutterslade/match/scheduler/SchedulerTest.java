@@ -0,0 +1,299 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class SchedulerTest {
+
+  private static final class RecordingListener implements DayListener {
+
+    private final List<Day> days = Lists.newArrayList();
+
+    private final Map<Day, ImmutableSet<Match>> matches = Maps.newHashMap();
+
+    @Override
+    public synchronized void dayScheduled(Day day, ImmutableSet<Match> matches) {
+      days.add(day);
+      this.matches.put(day, matches);
+    }
+  }
+
+  private static void assertStreamed(Scheduler s, RecordingListener listener) {
+    Assert.assertEquals(s.getDays().size(), listener.days.size());
+    Assert.assertEquals(s.getDays(), ImmutableSet.copyOf(listener.days));
+    for (Day day : s.getDays())
+      Assert.assertEquals(s.getMatches(day), listener.matches.get(day));
+  }
+
+  @Test
+  public void scheduleTest() throws InterruptedException, ExecutionException {
+    RecordingListener listener = new RecordingListener();
+    Scheduler s = Scheduler.schedule(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2, listener).get();
+    assertStreamed(s, listener);
+    Assert.assertEquals(Lists.newArrayList(s.getDays()), listener.days);
+    Scheduler blocking = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(blocking.getMatches(), s.getMatches());
+  }
+
+  @Test
+  public void randomizedScheduleTest() throws InterruptedException, ExecutionException {
+    RecordingListener listener = new RecordingListener();
+    Configuration config = Configuration.builder().randomizeDayOrder(true).randomizeSlotOrder(true).randomizeMatchOrder(true).build();
+    assertStreamed(Scheduler.schedule(config, 16, 2, 2, 2, 2, 6, 2, listener).get(), listener);
+  }
+
+  @Test
+  public void improvedScheduleTest() throws InterruptedException, ExecutionException {
+    RecordingListener listener = new RecordingListener();
+    Configuration config = Configuration.builder().improvementMoves(10000).build();
+    Scheduler s = Scheduler.schedule(config, 16, 2, 2, 2, 2, 6, 2, listener).get();
+    assertStreamed(s, listener);
+    Assert.assertEquals(Lists.newArrayList(s.getDays()), listener.days);
+  }
+
+  @Test
+  public void portfolioScheduleTest() throws InterruptedException, ExecutionException {
+    RecordingListener listener = new RecordingListener();
+    Configuration config = Configuration.builder().portfolioRuns(3).build();
+    assertStreamed(Scheduler.schedule(config, 16, 2, 2, 2, 2, 6, 2, listener).get(), listener);
+  }
+
+  @Test
+  public void seedTest() throws InterruptedException {
+    Configuration config = Configuration.builder().random(true).improvementMoves(5000).annealingTemperature(2).build();
+    Scheduler s = new Scheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Configuration seeded = Configuration.builder(config).seed(s.getSeed()).build();
+    Scheduler again = new Scheduler(seeded, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(s.getSeed(), again.getSeed());
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(again.getMatches()));
+    Scheduler parallel = new Scheduler(Configuration.builder(seeded).parallelCandidates(true).build(), 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(parallel.getMatches()));
+  }
+
+  @Test
+  public void seededPortfolioTest() throws InterruptedException {
+    Configuration config = Configuration.builder().random(true).portfolioRuns(4).seed(42).build();
+    Scheduler s = new Scheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Scheduler again = new Scheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(42, s.getSeed());
+    Assert.assertEquals(s.getRunSadFaces(), again.getRunSadFaces());
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(again.getMatches()));
+  }
+
+  @Test
+  public void executionStrategyTest() throws InterruptedException {
+    Configuration sequential = Configuration.builder().parallelCandidates(true).executionStrategy(ExecutionStrategy.sequential()).build();
+    ImmutableSet<Match> expected = new Scheduler(sequential, 16, 2, 2, 2, 2, 6, 2).getMatches();
+    ExecutorService service = Executors.newFixedThreadPool(2);
+    ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+    try {
+      Set<ExecutionStrategy> strategies = Sets.newLinkedHashSet(ImmutableSet.of(ExecutionStrategy.threadPool(), ExecutionStrategy.commonPool(), ExecutionStrategy.executorService(service), ExecutionStrategy.executorService(forkJoinPool)));
+      if (ExecutionStrategy.isVirtualThreadsSupported()) strategies.add(ExecutionStrategy.virtualThreads());
+      for (ExecutionStrategy strategy : strategies)
+        for (boolean parallelCandidates : new boolean[] { true, false }) {
+          Configuration config = Configuration.builder().parallelCandidates(parallelCandidates).executionStrategy(strategy).build();
+          Assert.assertEquals(strategy.toString(), expected, new Scheduler(config, 16, 2, 2, 2, 2, 6, 2).getMatches());
+        }
+      Assert.assertFalse(service.isShutdown());
+      Assert.assertFalse(forkJoinPool.isShutdown());
+    }
+    finally {
+      service.shutdown();
+      forkJoinPool.shutdown();
+    }
+  }
+
+  @Test
+  public void virtualThreadsTest() {
+    try {
+      Assert.assertEquals("virtualThreads", ExecutionStrategy.virtualThreads().toString());
+      Assert.assertTrue(ExecutionStrategy.isVirtualThreadsSupported());
+    }
+    catch (UnsupportedOperationException e) {
+      Assert.assertFalse(ExecutionStrategy.isVirtualThreadsSupported());
+    }
+  }
+
+  @Test
+  public void portfolioExecutionStrategyTest() throws InterruptedException {
+    Configuration config = Configuration.builder().random(true).portfolioRuns(4).seed(7).build();
+    Scheduler s = new Scheduler(config, 16, 2, 2, 2, 2, 6, 2);
+    Scheduler sequential = new Scheduler(Configuration.builder(config).executionStrategy(ExecutionStrategy.sequential()).build(), 16, 2, 2, 2, 2, 6, 2);
+    Assert.assertEquals(s.getRunSadFaces(), sequential.getRunSadFaces());
+    Assert.assertEquals(Lists.newArrayList(s.getMatches()), Lists.newArrayList(sequential.getMatches()));
+  }
+
+  @Test
+  public void cancelTest() throws InterruptedException, ExecutionException {
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicReference<Future<Scheduler>> future = new AtomicReference<Future<Scheduler>>();
+    final AtomicInteger received = new AtomicInteger();
+    final AtomicReference<Thread> worker = new AtomicReference<Thread>();
+    future.set(Scheduler.schedule(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2, new DayListener() {
+
+      @Override
+      public void dayScheduled(Day day, ImmutableSet<Match> matches) {
+        try {
+          started.await();
+        }
+        catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        worker.set(Thread.currentThread());
+        received.incrementAndGet();
+        future.get().cancel(true);
+      }
+    }));
+    started.countDown();
+    try {
+      future.get().get();
+      Assert.fail("cancelled schedule completed");
+    }
+    catch (CancellationException e) {
+      // expected
+    }
+    // the future is done as soon as it is cancelled; wait for the scheduling
+    // thread to stop before checking that no further day was delivered
+    worker.get().join();
+    Assert.assertEquals(1, received.get());
+  }
+
+  @Test
+  public void indexTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 8, 2, 2, 1, 2, 4, 2);
+    Set<Match> found = Sets.newHashSet();
+    for (Day day : s.getDays()) {
+      List<Match> ordered = Lists.newArrayList();
+      for (Time time : s.getTimes())
+        for (Court court : s.getCourts()) {
+          Match m = s.getMatch(day, time, court);
+          if (null == m) continue;
+          Assert.assertEquals(new Slot(time, day, court), m.getSlot());
+          Assert.assertTrue(found.add(m));
+          ordered.add(m);
+        }
+      Assert.assertEquals(ordered, Lists.newArrayList(s.getMatches(day)));
+      Assert.assertSame(s.getMatches(day), s.getMatches(day));
+    }
+    Assert.assertEquals(s.getMatches(), found);
+    Day day = s.getDays().iterator().next();
+    Time time = s.getTimes().iterator().next();
+    Court court = s.getCourts().iterator().next();
+    Assert.assertNull(s.getMatch(new Day("x"), time, court));
+    Assert.assertNull(s.getMatch(day, new Time("x"), court));
+    Assert.assertNull(s.getMatch(day, time, new Court("x", court.getGym())));
+    Assert.assertTrue(s.getMatches(new Day("x")).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void indexSlotTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 8, 1, 1, 1, 2, 2, 2);
+    Match m = s.getMatches().iterator().next();
+    List<Team> teams = Lists.newArrayList(s.getTeams());
+    teams.removeAll(m.getTeams());
+    Match other = new Match(teams.subList(0, 2), m.getSlot());
+    new MatchIndex(s.getDays(), s.getTimes(), s.getCourts(), ImmutableSet.of(m, other));
+  }
+
+  private static List<Day> days(Scheduler s) {
+    return Lists.newArrayList(s.getDays());
+  }
+
+  /**
+   * Assert that no team plays twice on the day, and that every team plays if
+   * every slot of the day has a match.
+   */
+  private static void assertDay(Scheduler s, Day day) {
+    Set<Team> teams = Sets.newHashSet();
+    for (Match m : s.getMatches(day))
+      for (Team t : m.getTeams())
+        Assert.assertTrue(t + " plays twice on " + day, teams.add(t));
+    if (s.getMatches(day).size() == s.getCourts().size() * s.getTimes().size()) Assert.assertEquals(s.getTeams(), teams);
+  }
+
+  @Test
+  public void rescheduleRemoveSlotTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Day day = days(s).get(3);
+    Slot slot = s.getMatches(day).iterator().next().getSlot();
+    Scheduler r = s.reschedule(ImmutableSet.of(days(s).get(0)), ScheduleChange.removeSlot(slot));
+    Assert.assertFalse(r.getSlots().contains(slot));
+    Assert.assertNull(r.getMatch(slot.getDay(), slot.getTime(), slot.getCourt()));
+    Assert.assertEquals(s.getMatches(day).size() - 1, r.getMatches(day).size());
+    assertDay(r, day);
+    for (Day d : s.getDays())
+      if (!d.equals(day)) Assert.assertEquals(s.getMatches(d), r.getMatches(d));
+  }
+
+  @Test
+  public void rescheduleFrozenSlotTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Day day = days(s).get(1);
+    Match removed = s.getMatches(day).iterator().next();
+    Scheduler r = s.reschedule(ImmutableSet.of(day), ScheduleChange.removeSlot(removed.getSlot()));
+    Set<Match> expected = Sets.newHashSet(s.getMatches());
+    expected.remove(removed);
+    Assert.assertEquals(expected, r.getMatches());
+  }
+
+  @Test
+  public void rescheduleRemoveTeamTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.builder().improvementMoves(2000).build(), 14, 2, 2, 2, 2, 6, 2);
+    Team team = s.getTeams().iterator().next();
+    Set<Day> frozen = ImmutableSet.of(days(s).get(0), days(s).get(1));
+    Scheduler r = s.reschedule(frozen, ScheduleChange.removeTeam(team));
+    Assert.assertFalse(r.getTeams().contains(team));
+    Assert.assertEquals(s.getTeams().size(), r.getTeams().size());
+    for (Day d : s.getDays()) {
+      assertDay(r, d);
+      for (Match m : r.getMatches(d))
+        Assert.assertFalse(m.getTeams().contains(team));
+    }
+    for (Day d : frozen)
+      for (Time t : s.getTimes())
+        for (Court c : s.getCourts()) {
+          Match before = s.getMatch(d, t, c);
+          Match after = r.getMatch(d, t, c);
+          Assert.assertEquals(before.getTeams().size(), after.getTeams().size());
+          Assert.assertEquals(before.getTeams().contains(team) ? 1 : 0, Sets.difference(after.getTeams(), before.getTeams()).size());
+        }
+  }
+
+  @Test
+  public void rescheduleAddDayTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    Scheduler r = s.reschedule(ImmutableSet.<Day> of(), ScheduleChange.addDay("extra"));
+    Assert.assertEquals(s.getDays().size() + 1, r.getDays().size());
+    Day day = days(r).get(s.getDays().size());
+    Assert.assertEquals("extra", day.getName());
+    Assert.assertEquals(s.getCourts().size() * s.getTimes().size(), r.getMatches(day).size());
+    assertDay(r, day);
+    Assert.assertTrue(r.getMatches().containsAll(s.getMatches()));
+    Assert.assertEquals(s.getMatches().size() + r.getMatches(day).size(), r.getMatches().size());
+    Assert.assertTrue(r.getSadFaces() >= s.getSadFaces());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rescheduleExistingDayTest() throws InterruptedException {
+    Scheduler s = new Scheduler(Configuration.DEFAULT_CONFIGURATION, 16, 2, 2, 2, 2, 6, 2);
+    s.reschedule(ImmutableSet.<Day> of(), ScheduleChange.addDay(days(s).get(0).getName()));
+  }
+}
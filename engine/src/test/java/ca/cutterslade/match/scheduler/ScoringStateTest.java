@@ -0,0 +1,77 @@
+package ca.cutterslade.match.scheduler;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ScoringStateTest {
+
+  @Test
+  public void pairsTest() throws InterruptedException {
+    test(MatchMakerTest.league(18, 2, 2, 2, 3, 8, 2), 2);
+  }
+
+  @Test
+  public void triplesTest() throws InterruptedException {
+    test(MatchMakerTest.league(18, 2, 2, 2, 2, 8, 3), 3);
+  }
+
+  @Test
+  public void quadruplesTest() throws InterruptedException {
+    test(MatchMakerTest.league(20, 2, 2, 1, 4, 6, 4), 4);
+  }
+
+  @Test
+  public void improvedTest() throws InterruptedException {
+    Configuration config = Configuration.builder().improvementMoves(5000).build();
+    CompiledLeague league = MatchMakerTest.league(14, 1, 2, 1, 3, 6, 3);
+    assertTotals(league, new MatchMaker(config, league, 3).solve());
+  }
+
+  private void test(CompiledLeague league, int size) throws InterruptedException {
+    assertTotals(league, new MatchMaker(Configuration.DEFAULT_CONFIGURATION, league, size).solve());
+    Configuration random = Configuration.builder().random(true).seed(5).build();
+    assertTotals(league, new MatchMaker(random, league, size).solve());
+  }
+
+  /**
+   * Replay the matches one day after another, charging each what every
+   * factor charges it given the matches before it, and check the charges add
+   * up to the totals of a state the matches are added to in a random order,
+   * then removed from and added to again.
+   */
+  private static void assertTotals(CompiledLeague league, int[][] slotMatches) {
+    long[] charged = new long[SadFaceFactor.values().length];
+    List<Match> history = Lists.newArrayList();
+    for (int d = 0; d < league.getDayCount(); d++)
+      for (int s : league.getDaySlots(d)) {
+        Match m = new Match(league.getTeams(slotMatches[s]), league.getSlot(s));
+        for (SadFaceFactor f : SadFaceFactor.values())
+          charged[f.ordinal()] += f.getSadFaces(m.getSlot(), m.getTeams(), history, Integer.MAX_VALUE);
+        history.add(m);
+      }
+    int[] slots = new int[league.getSlotCount()];
+    for (int s = 0; s < slots.length; s++)
+      slots[s] = s;
+    SplittableRandom random = new SplittableRandom(7);
+    for (int i = slots.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int t = slots[i];
+      slots[i] = slots[j];
+      slots[j] = t;
+    }
+    ScoringState state = new ScoringState(league);
+    for (int s : slots)
+      state.add(s, slotMatches[s]);
+    for (int i = 0; i < slots.length / 2; i++)
+      state.remove(slots[i], slotMatches[slots[i]]);
+    for (int i = slots.length / 2 - 1; i >= 0; i--)
+      state.add(slots[i], slotMatches[slots[i]]);
+    for (SadFaceFactor f : SadFaceFactor.values())
+      Assert.assertEquals(f.name(), charged[f.ordinal()], state.getTotalSadFaces(f));
+  }
+}